@@ -0,0 +1,50 @@
+package com.mihailstoica.blog.payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// a full page of 100 posts, serialized the way the message converter does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostResponseSerializationBenchmark {
+
+    private ObjectWriter writer;
+
+    private PostResponse response;
+
+    @Setup
+    public void setup() {
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(PostResponse.class);
+
+        List<PostDto> posts = new ArrayList<>(100);
+        for (long id = 1; id <= 100; id++) {
+            PostDto post = new PostDto();
+            post.setId(id);
+            post.setTitle("Post title " + id);
+            post.setDescription("Post description " + id);
+            post.setContent("Some content ".repeat(100));
+            post.setCommentCount(id);
+            post.setLastCommentAt(Instant.now());
+            posts.add(post);
+        }
+        response = new PostResponse(posts, 0, 100, 1_000, 10, false, null);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,60 @@
+package com.mihailstoica.blog.service.impl;
+
+import com.mihailstoica.blog.entity.Comment;
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.payload.PostDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// entity to DTO mapping of the services; the repositories are never touched
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private PostServiceImpl postService;
+
+    private CommentServiceImpl commentService;
+
+    private Post post;
+
+    private Comment comment;
+
+    @Setup
+    public void setup() {
+
+        postService = new PostServiceImpl(null, null, null, null, null, null, null);
+        commentService = new CommentServiceImpl(null, null, null, null);
+
+        post = new Post();
+        post.setId(1L);
+        post.setTitle("Keyset pagination");
+        post.setDescription("Seek instead of OFFSET for deep pages");
+        post.setContent("Some content ".repeat(200));
+        post.setCommentCount(42);
+        post.setLastCommentAt(Instant.now());
+
+        comment = new Comment();
+        comment.setId(1L);
+        comment.setName("Reader");
+        comment.setEmail("reader@blog.io");
+        comment.setBody("Thanks, this is exactly what I was looking for.");
+        comment.setPost(post);
+    }
+
+    @Benchmark
+    public PostDto mapPost() {
+        return postService.mapToDTO(post);
+    }
+
+    @Benchmark
+    public CommentDto mapComment() {
+        return commentService.mapToDTO(comment);
+    }
+}
@@ -0,0 +1,259 @@
+package com.mihailstoica.blog.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.mihailstoica.blog.loadtest.LoadTestSettings.*;
+
+// closed-loop driver: each worker sends its next request as soon as the previous one completed. Latencies
+// are recorded in microseconds, only for requests started after the warm-up.
+public class LoadDriver {
+
+    private static final String PASSWORD = "loadtest-password";
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final int PAGE_SIZE = 10;
+
+    private final String baseUrl;
+
+    private final LoadTestSettings settings;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Long> postIds = new ArrayList<>();
+
+    private final List<String> usernames = new ArrayList<>();
+
+    private final List<String> tokens = new ArrayList<>();
+
+    public LoadDriver(String baseUrl, LoadTestSettings settings) {
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+    }
+
+    // N posts through the NDJSON import, M comments spread over them through the batch endpoint
+    public void seed() throws Exception {
+
+        String adminToken = signUpAndLogin("loadtest-admin");
+
+        StringBuilder posts = new StringBuilder();
+        for (int i = 1; i <= settings.posts(); i++) {
+            posts.append(objectMapper.writeValueAsString(Map.of(
+                    "title", "Load test post " + i,
+                    "description", "Load test description " + i,
+                    "content", "Load test content " + i))).append('\n');
+        }
+        send(post("/api/v1/posts/import", NDJSON, posts.toString(), adminToken), true);
+        loadPostIds();
+
+        int perPost = settings.comments() / postIds.size();
+        int remainder = settings.comments() % postIds.size();
+        ExecutorService executor = Executors.newFixedThreadPool(settings.concurrency());
+        try {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int i = 0; i < postIds.size(); i++) {
+                long postId = postIds.get(i);
+                int count = perPost + (i < remainder ? 1 : 0);
+                if (count > 0) {
+                    batches.add(executor.submit(() -> createComments(postId, count, adminToken)));
+                }
+            }
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Void createComments(long postId, int count, String token) throws IOException, InterruptedException {
+
+        List<Map<String, String>> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            comments.add(comment());
+        }
+        send(post("/api/v1/posts/" + postId + "/comments/batch", "application/json",
+                objectMapper.writeValueAsString(comments), token), true);
+        return null;
+    }
+
+    private void loadPostIds() throws IOException, InterruptedException {
+
+        postIds.clear();
+        String cursor = null;
+        do {
+            String path = "/api/v1/posts?limit=100"
+                    + (cursor == null ? "" : "&after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+            JsonNode page = objectMapper.readTree(send(get(path), true).body());
+            page.get("content").forEach(post -> postIds.add(post.get("id").asLong()));
+            cursor = page.path("last").asBoolean(true) ? null : page.path("nextCursor").asText(null);
+        } while (cursor != null);
+
+        if (postIds.isEmpty()) {
+            throw new IllegalStateException("No posts to load test against, run with loadtest.seed=true");
+        }
+    }
+
+    private String signUpAndLogin(String username) throws IOException, InterruptedException {
+
+        // fails with 400 when the user exists from an earlier run against the same database
+        send(post("/api/v1/auth/signup", "application/json", objectMapper.writeValueAsString(Map.of(
+                "name", username,
+                "username", username,
+                "email", username + "@loadtest.io",
+                "password", PASSWORD)), null), false);
+        JsonNode response = objectMapper.readTree(send(login(username), true).body());
+        return response.get("accessToken").asText();
+    }
+
+    public LoadReport run() throws Exception {
+
+        if (postIds.isEmpty()) {
+            loadPostIds();
+        }
+        for (int i = 1; i <= settings.users(); i++) {
+            String username = "loadtest-user-" + i;
+            tokens.add(signUpAndLogin(username));
+            usernames.add(username);
+        }
+
+        Map<String, Integer> mix = settings.mix();
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        mix.keySet().forEach(endpoint -> recorders.put(endpoint, new Recorder()));
+        String[] weighted = mix.entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(String[]::new);
+
+        long measureFrom = System.nanoTime() + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+
+        ExecutorService workers = Executors.newFixedThreadPool(settings.concurrency());
+        for (int i = 0; i < settings.concurrency(); i++) {
+            workers.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long started;
+                while ((started = System.nanoTime()) < end) {
+                    String endpoint = weighted[random.nextInt(weighted.length)];
+                    boolean success;
+                    try {
+                        success = send(request(endpoint, random), false).statusCode() < 400;
+                    } catch (IOException ex) {
+                        success = false;
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (started >= measureFrom) {
+                        recorders.get(endpoint).record(System.nanoTime() - started, success);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(settings.warmup().plus(settings.duration()).toSeconds() + 60, TimeUnit.SECONDS);
+
+        List<LoadReport.EndpointResult> results = new ArrayList<>();
+        double seconds = settings.duration().toMillis() / 1000.0;
+        recorders.forEach((endpoint, recorder) -> results.add(recorder.result(endpoint, seconds)));
+        return new LoadReport(settings.concurrency(), seconds, results);
+    }
+
+    private HttpRequest request(String endpoint, ThreadLocalRandom random) throws IOException {
+
+        long postId = postIds.get(random.nextInt(postIds.size()));
+        int user = random.nextInt(tokens.size());
+        return switch (endpoint) {
+            case LIST_POSTS -> get("/api/v1/posts?pageSize=" + PAGE_SIZE + "&pageNo="
+                    + random.nextInt(Math.max(1, postIds.size() / PAGE_SIZE)));
+            case LIST_COMMENTS -> get("/api/v1/posts/" + postId + "/comments?pageSize=" + PAGE_SIZE);
+            case CREATE_COMMENT -> post("/api/v1/posts/" + postId + "/comments", "application/json",
+                    objectMapper.writeValueAsString(comment()), tokens.get(user));
+            case LOGIN -> login(usernames.get(user));
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        };
+    }
+
+    private static Map<String, String> comment() {
+        return Map.of("name", "Load test", "email", "reader@loadtest.io", "body", "Load test comment body");
+    }
+
+    private HttpRequest login(String username) throws IOException {
+        return post("/api/v1/auth/login", "application/json", objectMapper.writeValueAsString(Map.of(
+                "usernameOrEmail", username, "password", PASSWORD)), null);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String path, String contentType, String body, String token) {
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request, boolean required) throws IOException, InterruptedException {
+
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (required && response.statusCode() >= 400) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " failed with "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private static final class Recorder {
+
+        private final Histogram latencies = new ConcurrentHistogram(3);
+
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long nanos, boolean success) {
+
+            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        private LoadReport.EndpointResult result(String endpoint, double seconds) {
+
+            long requests = latencies.getTotalCount();
+            return new LoadReport.EndpointResult(endpoint, requests, errors.sum(), requests / seconds,
+                    latencies.getValueAtPercentile(50) / 1000.0,
+                    latencies.getValueAtPercentile(90) / 1000.0,
+                    latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getMaxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.mihailstoica.blog.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// per endpoint throughput and latency percentiles (milliseconds) of the measured phase
+public record LoadReport(int concurrency, double seconds, List<EndpointResult> endpoints) {
+
+    public record EndpointResult(String endpoint, long requests, long errors, double throughput,
+                                 double p50, double p90, double p99, double max) {
+    }
+
+    public long requests() {
+        return endpoints.stream().mapToLong(EndpointResult::requests).sum();
+    }
+
+    public long errors() {
+        return endpoints.stream().mapToLong(EndpointResult::errors).sum();
+    }
+
+    public double throughput() {
+        return requests() / seconds;
+    }
+
+    public void print(PrintStream out) {
+
+        out.printf("%n%-16s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (EndpointResult result : endpoints) {
+            out.printf("%-16s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", result.endpoint(), result.requests(),
+                    result.errors(), result.throughput(), result.p50(), result.p90(), result.p99(), result.max());
+        }
+        out.printf("%-16s %10d %8d %10.1f%n%n", "total", requests(), errors(), throughput());
+    }
+
+    public void write(Path path) throws IOException {
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), this);
+    }
+
+    public List<String> checkSlos(LoadTestSettings settings) {
+
+        List<String> violations = new ArrayList<>();
+        for (EndpointResult result : endpoints) {
+            checkLatency(violations, result.endpoint(), "p50", result.p50(), settings.latencySlo(result.endpoint(), "p50"));
+            checkLatency(violations, result.endpoint(), "p99", result.p99(), settings.latencySlo(result.endpoint(), "p99"));
+        }
+
+        double errorRate = requests() == 0 ? 1.0 : (double) errors() / requests();
+        if (errorRate > settings.maxErrorRate()) {
+            violations.add(String.format("error rate %.4f > %.4f", errorRate, settings.maxErrorRate()));
+        }
+        if (throughput() < settings.minThroughput()) {
+            violations.add(String.format("throughput %.1f req/s < %.1f req/s", throughput(), settings.minThroughput()));
+        }
+        return violations;
+    }
+
+    private static void checkLatency(List<String> violations, String endpoint, String percentile, double actualMillis,
+                                     Duration slo) {
+
+        if (slo != null && actualMillis > slo.toMillis()) {
+            violations.add(String.format("%s %s %.2f ms > %d ms", endpoint, percentile, actualMillis, slo.toMillis()));
+        }
+    }
+}
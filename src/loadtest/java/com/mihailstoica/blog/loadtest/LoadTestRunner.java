@@ -0,0 +1,78 @@
+package com.mihailstoica.blog.loadtest;
+
+import com.mihailstoica.blog.SpringRestApiBlogApplication;
+import com.mihailstoica.blog.entity.Role;
+import com.mihailstoica.blog.repository.RoleRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+// mvn -Ploadtest verify [-Dloadtest.args="--loadtest.duration=5m --spring.datasource.hikari.maximum-pool-size=40"]
+// Options are read from the command line, then from application-loadtest.properties; the command line is
+// also passed to the application, so any of its properties can be varied between runs.
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.setConversionService((ConfigurableConversionService) ApplicationConversionService.getSharedInstance());
+        environment.getPropertySources().addFirst(
+                new ResourcePropertySource("classpath:application-loadtest.properties"));
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        LoadTestSettings settings = new LoadTestSettings(environment);
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = settings.baseUrl();
+        if (!StringUtils.hasText(baseUrl)) {
+            // devtools decides on restarting before the profile properties are read
+            System.setProperty("spring.devtools.restart.enabled", "false");
+            context = new SpringApplicationBuilder(SpringRestApiBlogApplication.class)
+                    .profiles("loadtest")
+                    .run(args);
+            createRoles(context.getBean(RoleRepository.class));
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+        }
+
+        int exitCode;
+        try {
+            LoadDriver driver = new LoadDriver(baseUrl, settings);
+            if (settings.seed()) {
+                driver.seed();
+            }
+            LoadReport report = driver.run();
+            report.print(System.out);
+            report.write(Path.of(settings.reportPath()));
+
+            List<String> violations = report.checkSlos(settings);
+            violations.forEach(violation -> System.out.println("SLO violated: " + violation));
+            exitCode = violations.isEmpty() ? 0 : 1;
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    // sign-up gives every user ROLE_ADMIN, which must exist
+    private static void createRoles(RoleRepository roleRepository) {
+
+        for (String name : List.of("ROLE_ADMIN", "ROLE_USER")) {
+            if (roleRepository.findByName(name).isEmpty()) {
+                Role role = new Role();
+                role.setName(name);
+                roleRepository.save(role);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.mihailstoica.blog.loadtest;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// loadtest.* options; see application-loadtest.properties for their meaning and defaults
+public class LoadTestSettings {
+
+    public static final String LIST_POSTS = "list-posts";
+    public static final String LIST_COMMENTS = "list-comments";
+    public static final String CREATE_COMMENT = "create-comment";
+    public static final String LOGIN = "login";
+
+    private static final String[] ENDPOINTS = {LIST_POSTS, LIST_COMMENTS, CREATE_COMMENT, LOGIN};
+
+    private final Environment environment;
+
+    public LoadTestSettings(Environment environment) {
+        this.environment = environment;
+    }
+
+    public String baseUrl() {
+        return environment.getProperty("loadtest.base-url", "");
+    }
+
+    public boolean seed() {
+        return environment.getProperty("loadtest.seed", Boolean.class, true);
+    }
+
+    public int posts() {
+        return environment.getProperty("loadtest.posts", Integer.class, 1000);
+    }
+
+    public int comments() {
+        return environment.getProperty("loadtest.comments", Integer.class, 20000);
+    }
+
+    public int users() {
+        return environment.getProperty("loadtest.users", Integer.class, 20);
+    }
+
+    public int concurrency() {
+        return environment.getProperty("loadtest.concurrency", Integer.class, 32);
+    }
+
+    public Duration warmup() {
+        return environment.getProperty("loadtest.warmup", Duration.class, Duration.ofSeconds(10));
+    }
+
+    public Duration duration() {
+        return environment.getProperty("loadtest.duration", Duration.class, Duration.ofSeconds(60));
+    }
+
+    public String reportPath() {
+        return environment.getProperty("loadtest.report", "target/loadtest-report.json");
+    }
+
+    // endpoint -> weight, endpoints with weight 0 are left out
+    public Map<String, Integer> mix() {
+
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String endpoint : ENDPOINTS) {
+            int weight = environment.getProperty("loadtest.mix." + endpoint, Integer.class, 0);
+            if (weight > 0) {
+                mix.put(endpoint, weight);
+            }
+        }
+        return mix;
+    }
+
+    // null when the endpoint has no SLO for that percentile
+    public Duration latencySlo(String endpoint, String percentile) {
+        return environment.getProperty("loadtest.slo." + endpoint + "." + percentile, Duration.class);
+    }
+
+    public double maxErrorRate() {
+        return environment.getProperty("loadtest.slo.max-error-rate", Double.class, 0.01);
+    }
+
+    public double minThroughput() {
+        return environment.getProperty("loadtest.slo.min-throughput", Double.class, 0.0);
+    }
+}
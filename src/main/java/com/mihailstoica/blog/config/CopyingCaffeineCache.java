@@ -0,0 +1,52 @@
+package com.mihailstoica.blog.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NullValue;
+
+import java.io.IOException;
+
+// the cached DTOs are mutable and a plain cache hands the same instance to every caller, so a caller
+// changing its result would change what the next request gets; entries are kept as JSON instead and
+// every hit reads back a fresh copy, as a remote cache would
+class CopyingCaffeineCache extends CaffeineCache {
+
+    private final ObjectMapper objectMapper;
+
+    CopyingCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                         boolean allowNullValues, ObjectMapper objectMapper) {
+        super(name, cache, allowNullValues);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected Object toStoreValue(Object userValue) {
+        Object storeValue = super.toStoreValue(userValue);
+        if (storeValue == NullValue.INSTANCE) {
+            return storeValue;
+        }
+        try {
+            return new StoredValue(userValue.getClass(), objectMapper.writeValueAsBytes(userValue));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Failed to serialize cache value of type "
+                    + userValue.getClass().getName(), ex);
+        }
+    }
+
+    @Override
+    protected Object fromStoreValue(Object storeValue) {
+        if (storeValue instanceof StoredValue stored) {
+            try {
+                return objectMapper.readValue(stored.json(), stored.type());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to deserialize cache value of type "
+                        + stored.type().getName(), ex);
+            }
+        }
+        return super.fromStoreValue(storeValue);
+    }
+
+    private record StoredValue(Class<?> type, byte[] json) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.mihailstoica.blog.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Spring Boot skips the JDBC DataSource once an R2DBC ConnectionFactory exists, so JPA gets its Hikari pool
+// declared here, still configured from spring.datasource.* and spring.datasource.hikari.*, optionally behind
+// a router to read replicas
+@Configuration
+public class DataSourceConfig {
+
+    private static final String REPLICAS_CONFIGURED = "'${app.datasource.replica-urls:}' != ''";
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    @ConditionalOnExpression("!(" + REPLICAS_CONFIGURED + ")")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // with app.datasource.replica-urls set, read-only transactions go to the replicas
+    @Configuration
+    @ConditionalOnExpression(REPLICAS_CONFIGURED)
+    static class ReplicaRoutingConfig {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+            return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        public ReplicaRoutingDataSource replicaRoutingDataSource(
+                HikariDataSource primaryDataSource,
+                @Value("${app.datasource.replica-urls}") List<String> replicaUrls,
+                @Value("${app.datasource.replica-username:${spring.datasource.username}}") String username,
+                @Value("${app.datasource.replica-password:${spring.datasource.password}}") String password,
+                @Value("${app.datasource.replica-pool-size:20}") int poolSize,
+                @Value("${app.datasource.max-replica-lag:PT5S}") Duration maxLag,
+                @Value("${app.datasource.replica-lag-query}") String lagQuery,
+                @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+
+            // an open session holds the first connection it took until the request ends, so a read-only
+            // lookup would route the request's later writes to a replica as well
+            if (openInView) {
+                throw new IllegalStateException("Replica routing needs spring.jpa.open-in-view=false");
+            }
+
+            List<DataSource> replicas = new ArrayList<>();
+            for (String url : replicaUrls) {
+                HikariDataSource replica = new HikariDataSource();
+                replica.setPoolName("replica-" + (replicas.size() + 1));
+                replica.setJdbcUrl(url);
+                replica.setUsername(username);
+                replica.setPassword(password);
+                replica.setMaximumPoolSize(poolSize);
+                replica.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+                replica.setReadOnly(true);
+                replicas.add(replica);
+            }
+            return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag, lagQuery);
+        }
+
+        // the replica pools are not beans, so they are not picked up by the Hikari metrics binder. Bound from here
+        // rather than when the pools are built: the meter registry's own binders need the data source.
+        @Bean
+        public MeterBinder replicaPoolMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            return registry -> replicaRoutingDataSource.getReplicaDataSources().stream()
+                    .filter(HikariDataSource.class::isInstance)
+                    .forEach(replica -> ((HikariDataSource) replica).setMetricRegistry(registry));
+        }
+
+        // cached reads are filled from the primary, a replica's row from within its lag would be served to
+        // everyone for the cache's lifetime, long after the writer's own stickiness window
+        @Bean
+        public ReadFromPrimaryAspect readFromPrimaryAspect() {
+            return new ReadFromPrimaryAspect();
+        }
+
+        // defers taking a connection to the first statement, when the transaction's read-only flag is set
+        @Bean
+        @Primary
+        public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.mihailstoica.blog.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// @Timed support for the services and the JWT provider; percentiles and histogram buckets are configured
+// per meter name in application.properties
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "blog.service";
+
+    public static final String JWT_TIMER = "blog.jwt";
+
+    // separate name: meters sharing a name must share their tag keys in Prometheus
+    public static final String JWT_FILTER_TIMER = "blog.jwt.filter";
+
+    // the uri tag holds route templates, but unmatched paths of 404s could still add up
+    private static final int MAX_URI_TAGS = 200;
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterFilter uriTagLimit() {
+        return MeterFilter.maximumAllowableTags("http.server.requests", "uri", MAX_URI_TAGS, MeterFilter.deny());
+    }
+}
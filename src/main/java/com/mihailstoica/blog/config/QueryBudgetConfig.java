@@ -0,0 +1,38 @@
+package com.mihailstoica.blog.config;
+
+import com.mihailstoica.blog.sql.QueryBudgetFilter;
+import com.mihailstoica.blog.sql.StatementCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// per-request SQL statement counting (see QueryBudgetFilter)
+@Configuration
+@ConditionalOnProperty(name = "app.query-budget.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryBudgetConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCounter() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCounter());
+    }
+
+    // first in the chain, so that the user lookups of the JWT filter are part of the count
+    @Bean
+    public FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.query-budget.default-max:20}") int defaultBudget,
+            @Value("${app.query-budget.repeat-threshold:5}") int repeatThreshold,
+            @Value("${app.query-budget.strict:false}") boolean strict) {
+
+        FilterRegistrationBean<QueryBudgetFilter> registration = new FilterRegistrationBean<>(
+                new QueryBudgetFilter(meterRegistry, defaultBudget, repeatThreshold, strict));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,11 @@
+package com.mihailstoica.blog.config;
+
+import java.lang.annotation.*;
+
+// read-only transactions started within the annotated method stay on the primary even with replica routing;
+// for reads whose results outlive the request (cached), which must not capture a lagging replica's rows
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadFromPrimary {
+}
@@ -0,0 +1,25 @@
+package com.mihailstoica.blog.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+// applies @ReadFromPrimary; only registered with replica routing (see DataSourceConfig). The routing data
+// source takes its connection at the first statement, so this also covers a transaction the method began.
+@Aspect
+public class ReadFromPrimaryAspect {
+
+    @Around("@annotation(com.mihailstoica.blog.config.ReadFromPrimary)")
+    public Object readFromPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        if (ReplicaRoutingDataSource.PRIMARY_READS.get() != null) {
+            return joinPoint.proceed();
+        }
+        ReplicaRoutingDataSource.PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRoutingDataSource.PRIMARY_READS.remove();
+        }
+    }
+}
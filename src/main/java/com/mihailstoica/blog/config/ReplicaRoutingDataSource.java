@@ -0,0 +1,196 @@
+package com.mihailstoica.blog.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// routes read-only transactions to the replicas (round robin) and everything else to the primary. Replicas
+// lagging more than maxLag are skipped, and a client's reads stay on the primary for maxLag after its own
+// writes, so it always reads what it wrote. Must be wrapped in a LazyConnectionDataSourceProxy: the
+// read-only flag of a transaction is only known after it has begun.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String PRIMARY = "primary";
+
+    // sign-up and login, the only requests whose writes are tracked by client address
+    private static final String AUTH_PATH = "/api/v1/auth/";
+
+    // set while a @ReadFromPrimary method runs, see ReadFromPrimaryAspect
+    static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Duration maxLag;
+
+    // returns the replica's lag in seconds
+    private final String lagQuery;
+
+    // clients (user name, or address for sign-up and login) that wrote within the last maxLag
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources, Duration maxLag,
+                                    String lagQuery) {
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(maxLag)
+                .maximumSize(100_000)
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            Replica replica = new Replica("replica-" + (i + 1), replicaDataSources.get(i));
+            replicas.add(replica);
+            targets.put(replica.name, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                recordWrite();
+            }
+            return PRIMARY;
+        }
+        if (PRIMARY_READS.get() != null || isRecentWriter()) {
+            return PRIMARY;
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    // the stickiness window starts when the write commits, not when its connection was taken
+    private void recordWrite() {
+
+        String client = currentClient();
+        if (client == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentWriters.put(client, Boolean.TRUE);
+                }
+            });
+        } else {
+            recentWriters.put(client, Boolean.TRUE);
+        }
+    }
+
+    private boolean isRecentWriter() {
+
+        String client = currentClient();
+        return client != null && recentWriters.getIfPresent(client) != null;
+    }
+
+    // the authenticated user. Sign-up and login happen before there is one, so they fall back to the remote
+    // address, which behind a proxy is only the client's with server.forward-headers-strategy=framework.
+    // Any other request keyed on its address would pin every client behind the same NAT to the primary.
+    private static String currentClient() {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            if (request.getRequestURI().startsWith(request.getContextPath() + AUTH_PATH)) {
+                return "address:" + request.getRemoteAddr();
+            }
+        }
+        return null;
+    }
+
+    // replicas start out unhealthy, so reads only move to a replica once its lag was checked
+    @Scheduled(fixedDelayString = "${app.datasource.replica-lag-check-interval:PT2S}")
+    public void checkReplicaLag() {
+
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                double lagSeconds = resultSet.next() ? resultSet.getDouble(1) : Double.NaN;
+                healthy = !resultSet.wasNull() && lagSeconds * 1000 <= maxLag.toMillis();
+            } catch (SQLException ex) {
+                log.debug("Replica lag check of {} failed", replica.name, ex);
+                healthy = false;
+            }
+
+            if (healthy != replica.healthy) {
+                log.warn("{} is {} for reads", replica.name, healthy ? "available" : "unavailable");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    public List<DataSource> getReplicaDataSources() {
+        return replicas.stream().map(replica -> replica.dataSource).toList();
+    }
+
+    public void close() throws Exception {
+
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
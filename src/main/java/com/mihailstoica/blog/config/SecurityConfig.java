@@ -1,8 +1,11 @@
 package com.mihailstoica.blog.config;
 
+import com.mihailstoica.blog.security.BoundedPasswordEncoder;
 import com.mihailstoica.blog.security.CustomUserDetailsService;
 import com.mihailstoica.blog.security.JwtAuthenticationEntryPoint;
 import com.mihailstoica.blog.security.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,15 +16,23 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    private static final String BCRYPT = "bcrypt";
+
+    private static final String PBKDF2 = "pbkdf2";
+
     private final CustomUserDetailsService userDetailsService;
 
     private final JwtAuthenticationEntryPoint authenticationEntryPoint;
@@ -36,9 +47,32 @@ public class SecurityConfig {
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
         return new JwtAuthenticationFilter();
     }
+    // hashes are stored as {id}hash and new ones use app.password.algorithm; hashes from before the {id} prefix
+    // are BCrypt. After a successful login, a hash with another algorithm or a lower BCrypt strength is
+    // replaced (CustomUserDetailsService.updatePassword)
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(@Value("${app.password.algorithm:bcrypt}") String algorithm,
+                                    @Value("${app.password.bcrypt-strength:10}") int bcryptStrength,
+                                    @Value("${app.password.pbkdf2-iterations:310000}") int pbkdf2Iterations,
+                                    @Value("${app.password.hashing-threads:0}") int hashingThreads,
+                                    @Value("${app.password.hashing-queue-capacity:50}") int hashingQueueCapacity,
+                                    MeterRegistry meterRegistry) {
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Pbkdf2PasswordEncoder pbkdf2 = new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations, 256);
+        pbkdf2.setAlgorithm(Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+
+        Map<String, PasswordEncoder> encoders = Map.of(BCRYPT, bcrypt, PBKDF2, pbkdf2);
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalArgumentException("Unsupported app.password.algorithm " + algorithm
+                    + ", expected one of " + encoders.keySet());
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        // one hashing thread per core by default: hashing is CPU bound
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegating, threads, hashingQueueCapacity, meterRegistry);
     }
 
 
@@ -1,13 +1,23 @@
 package com.mihailstoica.blog.controller;
 
+import com.mihailstoica.blog.payload.CommentBatchResponse;
 import com.mihailstoica.blog.payload.CommentDto;
 import com.mihailstoica.blog.payload.CommentResponse;
+import com.mihailstoica.blog.payload.CommentSearchHit;
+import com.mihailstoica.blog.payload.SearchResponse;
 import com.mihailstoica.blog.service.CommentService;
+import com.mihailstoica.blog.sql.QueryBudget;
+import com.mihailstoica.blog.stream.CommentStreamHub;
+import com.mihailstoica.blog.utils.ConditionalRequests;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.util.List;
 
 import static com.mihailstoica.blog.utils.Constants.*;
 
@@ -17,8 +27,11 @@ public class CommentController {
 
     private final CommentService commentService;
 
-    public CommentController(CommentService commentService) {
+    private final CommentStreamHub commentStreamHub;
+
+    public CommentController(CommentService commentService, CommentStreamHub commentStreamHub) {
         this.commentService = commentService;
+        this.commentStreamHub = commentStreamHub;
     }
 
     @PostMapping()
@@ -28,23 +41,70 @@ public class CommentController {
         return new ResponseEntity<>(commentService.createComment(postId, commentDto), HttpStatus.CREATED);
     }
 
+    // each comment is validated on its own, so invalid items are reported instead of failing the batch
+    // budget: a sequence call per 50 ids and an insert per chunk, for up to app.comment-batch.max-items comments
+    @QueryBudget(250)
+    @PostMapping("/batch")
+    public ResponseEntity<CommentBatchResponse> createComments(@PathVariable(name = "postId") Long postId,
+                                                               @RequestBody List<CommentDto> commentDtos) {
+
+        return new ResponseEntity<>(commentService.createComments(postId, commentDtos), HttpStatus.OK);
+    }
+
+    // Server-Sent Events: a "comment" event for every comment created after subscribing, instead of polling
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamComments(@PathVariable(name = "postId") Long postId) {
+
+        return commentStreamHub.subscribe(postId);
+    }
+
+    @QueryBudget(5)
     @GetMapping()
     public ResponseEntity<CommentResponse> getAllCommentsByPostId(
             @PathVariable(name  = "postId") Long postId,
             @RequestParam(value = "pageNo", defaultValue = DEFAULT_PAGE_NUMBER, required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = DEFAULT_PAGE_SIZE, required = false) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = DEFAULT_SORT_BY, required = false) String sortBy,
-            @RequestParam(value = "sortDir", defaultValue = DEFAULT_SORT_DIRECTION, required = false) String sortDir) {
+            @RequestParam(value = "sortDir", defaultValue = DEFAULT_SORT_DIRECTION, required = false) String sortDir,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+
+        // cursor mode: seek on (sortBy, id) instead of OFFSET, without a count query
+        if (after != null || limit != null) {
+            int pageLimit = limit != null ? limit : pageSize;
+            return new ResponseEntity<>(
+                    commentService.getCommentsByPostIdAfter(postId, after, pageLimit, sortBy, sortDir), HttpStatus.OK);
+        }
 
         return new ResponseEntity<>(commentService.getAllCommentsByPostId(postId, pageNo, pageSize, sortBy, sortDir),
                 HttpStatus.OK);
     }
 
+    // full-text search within the post's comments, ranked, paged with the returned cursor
+    @QueryBudget(5)
+    @GetMapping("/search")
+    public ResponseEntity<SearchResponse<CommentSearchHit>> searchComments(
+            @PathVariable(name = "postId") Long postId,
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_SIZE, required = false) int limit) {
+
+        return new ResponseEntity<>(commentService.searchCommentsByPostId(postId, query, after, limit), HttpStatus.OK);
+    }
+
+    @QueryBudget(5)
     @GetMapping("/{commentId}")
     public ResponseEntity<CommentDto> getCommentById(@PathVariable(name = "postId") Long postId,
-                                                     @PathVariable(name = "commentId") Long commentId) {
+                                                     @PathVariable(name = "commentId") Long commentId,
+                                                     WebRequest webRequest) {
+
+        // the ETag comes from the loaded comment itself, so it always matches the body
+        CommentDto commentDto = commentService.getCommentById(postId, commentId);
+        if (ConditionalRequests.checkNotModified(webRequest, "comment", commentDto)) {
+            return null;
+        }
 
-        return new ResponseEntity<>(commentService.getCommentById(postId, commentId), HttpStatus.OK);
+        return new ResponseEntity<>(commentDto, HttpStatus.OK);
     }
 
     @PutMapping("/{commentId}")
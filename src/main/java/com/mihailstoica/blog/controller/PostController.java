@@ -1,14 +1,30 @@
 package com.mihailstoica.blog.controller;
 
 import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.payload.PostImportResponse;
 import com.mihailstoica.blog.payload.PostResponse;
+import com.mihailstoica.blog.payload.PostSearchHit;
+import com.mihailstoica.blog.payload.PostSummaryResponse;
+import com.mihailstoica.blog.payload.SearchResponse;
 import com.mihailstoica.blog.service.PostService;
+import com.mihailstoica.blog.sql.QueryBudget;
+import com.mihailstoica.blog.utils.ConditionalRequests;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.time.Duration;
 
 import static com.mihailstoica.blog.utils.Constants.*;
 
@@ -18,6 +34,10 @@ public class PostController {
 
     private final PostService postService;
 
+    // async timeout of the export alone, other async requests keep spring.mvc.async.request-timeout
+    @Value("${app.post-export.timeout:PT1H}")
+    private Duration exportTimeout;
+
     public PostController(PostService postService) {
         this.postService = postService;
     }
@@ -29,20 +49,87 @@ public class PostController {
         return new ResponseEntity<>(postService.createPost(postDto), HttpStatus.CREATED);
     }
 
+    // read budgets leave room for the two user lookups of the JWT filter on a user cache miss
+    @QueryBudget(4)
     @GetMapping
     public ResponseEntity<PostResponse> getAllPosts(
             @RequestParam(value = "pageNo", defaultValue = DEFAULT_PAGE_NUMBER, required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = DEFAULT_PAGE_SIZE, required = false) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = DEFAULT_SORT_BY, required = false) String sortBy,
-            @RequestParam(value = "sortDir", defaultValue = DEFAULT_SORT_DIRECTION, required = false) String sortDir) {
+            @RequestParam(value = "sortDir", defaultValue = DEFAULT_SORT_DIRECTION, required = false) String sortDir,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+
+        // cursor mode: seek on (sortBy, id) instead of OFFSET, without a count query
+        if (after != null || limit != null) {
+            int pageLimit = limit != null ? limit : pageSize;
+            return new ResponseEntity<>(postService.getPostsAfter(after, pageLimit, sortBy, sortDir), HttpStatus.OK);
+        }
 
         return new ResponseEntity<>(postService.getAllPosts(pageNo, pageSize, sortBy, sortDir), HttpStatus.OK);
     }
 
+    // list without the post content, optionally with an excerpt of it
+    @QueryBudget(4)
+    @GetMapping("/summaries")
+    public ResponseEntity<PostSummaryResponse> getPostSummaries(
+            @RequestParam(value = "pageNo", defaultValue = DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "sortBy", defaultValue = DEFAULT_SORT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = DEFAULT_SORT_DIRECTION, required = false) String sortDir,
+            @RequestParam(value = "excerptLength", defaultValue = DEFAULT_EXCERPT_LENGTH, required = false) int excerptLength) {
+
+        return new ResponseEntity<>(postService.getPostSummaries(pageNo, pageSize, sortBy, sortDir, excerptLength),
+                HttpStatus.OK);
+    }
+
+    // full-text search, ranked, paged with the returned cursor
+    @QueryBudget(4)
+    @GetMapping("/search")
+    public ResponseEntity<SearchResponse<PostSearchHit>> searchPosts(
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_SIZE, required = false) int limit) {
+
+        return new ResponseEntity<>(postService.searchPosts(query, after, limit), HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportPosts(HttpServletRequest request,
+                                                             HttpServletResponse response) {
+
+        // StreamingResponseBody has no timeout of its own: replace the async request the handler adapter set up
+        // with the default timeout by one with the export timeout, before the async processing starts
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.createAsyncWebRequest(request, response);
+        asyncWebRequest.setTimeout(exportTimeout.toMillis());
+        WebAsyncUtils.getAsyncManager(request).setAsyncWebRequest(asyncWebRequest);
+
+        // written on the async request thread, one JSON document per line
+        StreamingResponseBody body = postService::exportPosts;
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @QueryBudget(QueryBudget.UNLIMITED)
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public ResponseEntity<PostImportResponse> importPosts(HttpServletRequest request) throws IOException {
+
+        // read straight from the request body instead of binding the whole payload
+        return new ResponseEntity<>(postService.importPosts(request.getInputStream()), HttpStatus.OK);
+    }
+
+    @QueryBudget(4)
     @GetMapping("/{id}")
-    public ResponseEntity<PostDto> getPostById(@PathVariable(name = "id") Long id) {
+    public ResponseEntity<PostDto> getPostById(@PathVariable(name = "id") Long id, WebRequest webRequest) {
+
+        // the ETag comes from the post itself, usually a cache hit, so it always matches the body
+        PostDto postDto = postService.getPostById(id);
+        if (ConditionalRequests.checkNotModified(webRequest, "post", postDto)) {
+            return null;
+        }
 
-        return new ResponseEntity<>(postService.getPostById(id), HttpStatus.OK);
+        return new ResponseEntity<>(postDto, HttpStatus.OK);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -0,0 +1,50 @@
+package com.mihailstoica.blog.controller;
+
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.service.ReactiveReadService;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.mihailstoica.blog.utils.Constants.*;
+
+// non-blocking reads: lists are streamed as NDJSON, one item written per item requested from the database,
+// and the request thread is released while rows are fetched
+@RestController
+@RequestMapping("/api/v1/reactive/posts")
+public class ReactiveReadController {
+
+    private final ReactiveReadService reactiveReadService;
+
+    public ReactiveReadController(ReactiveReadService reactiveReadService) {
+        this.reactiveReadService = reactiveReadService;
+    }
+
+    @GetMapping(produces = NDJSON)
+    public Flux<PostDto> getAllPosts(
+            @RequestParam(value = "pageNo", defaultValue = DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "sortBy", defaultValue = DEFAULT_SORT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = DEFAULT_SORT_DIRECTION, required = false) String sortDir) {
+
+        return reactiveReadService.getAllPosts(pageNo, pageSize, sortBy, sortDir);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<PostDto> getPostById(@PathVariable(name = "id") Long id) {
+
+        return reactiveReadService.getPostById(id);
+    }
+
+    @GetMapping(value = "/{postId}/comments", produces = NDJSON)
+    public Flux<CommentDto> getAllCommentsByPostId(
+            @PathVariable(value = "postId") Long postId,
+            @RequestParam(value = "pageNo", defaultValue = DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "sortBy", defaultValue = DEFAULT_SORT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = DEFAULT_SORT_DIRECTION, required = false) String sortDir) {
+
+        return reactiveReadService.getAllCommentsByPostId(postId, pageNo, pageSize, sortBy, sortDir);
+    }
+}
@@ -5,7 +5,12 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Where;
+
 import javax.persistence.*;
+import java.time.Instant;
 
 @Data
 @AllArgsConstructor
@@ -13,11 +18,19 @@ import javax.persistence.*;
 @EqualsAndHashCode(exclude = {"post"})
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_post_id_id", columnList = "post_id, id"),
+        @Index(name = "idx_comments_deleted_at", columnList = "deleted_at")
+})
+// soft-deleted comments are invisible to every entity query; bulk and native queries filter explicitly
+@Where(clause = "deleted_at is null")
 public class Comment {
 
+    // pooled sequence instead of IDENTITY so that Hibernate can batch inserts; existing databases get it
+    // from db/postgresql/V2__comments_seq.sql
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -26,6 +39,19 @@ public class Comment {
 
     private String body;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // set by a soft delete, the row is removed later by the purge job
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id", nullable = false)
     private Post post;
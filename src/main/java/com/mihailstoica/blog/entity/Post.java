@@ -5,7 +5,12 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Where;
+
 import javax.persistence.*;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -15,13 +20,18 @@ import java.util.Set;
 @EqualsAndHashCode(exclude = {"comments"})
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_deleted_at", columnList = "deleted_at")
+})
+// soft-deleted posts are invisible to every entity query; bulk and native queries filter explicitly
+@Where(clause = "deleted_at is null")
 public class Post {
 
+    // pooled like the comment ids, for the batched inserts of the NDJSON import; existing databases get the
+    // sequence from db/postgresql/V3__posts_seq.sql
     @Id
-    @GeneratedValue(
-            strategy = GenerationType.IDENTITY
-    )
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+    @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "title", nullable = false)
@@ -33,6 +43,29 @@ public class Post {
     @Column(name = "content", nullable = false)
     private String content;
 
+    // maintained by atomic updates on comment writes, so list pages never touch the comments table; never
+    // written back from the entity, whose loaded value may predate a concurrent comment write
+    // (existing databases are backfilled by db/postgresql/V4__post_comment_counters.sql)
+    @ColumnDefault("0")
+    @Column(name = "comment_count", nullable = false, updatable = false)
+    private long commentCount;
+
+    @Column(name = "last_comment_at", updatable = false)
+    private Instant lastCommentAt;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // set by a soft delete, the row and its comments are removed later by the purge job
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Comment> comments = new HashSet<>();
 }
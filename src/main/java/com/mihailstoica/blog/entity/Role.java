@@ -1,11 +1,13 @@
 package com.mihailstoica.blog.entity;
 
+import com.mihailstoica.blog.security.UserCacheInvalidationListener;
 import lombok.Data;
 
 import javax.persistence.*;
 
 @Data
 @Entity
+@EntityListeners(UserCacheInvalidationListener.class)
 @Table(name = "roles")
 public class Role {
 
@@ -1,5 +1,6 @@
 package com.mihailstoica.blog.entity;
 
+import com.mihailstoica.blog.security.UserCacheInvalidationListener;
 import lombok.Data;
 
 import javax.persistence.*;
@@ -7,6 +8,7 @@ import java.util.Set;
 
 @Data
 @Entity
+@EntityListeners(UserCacheInvalidationListener.class)
 @Table(name = "users", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"username"}),
 @UniqueConstraint(columnNames = {"email"})
@@ -0,0 +1,6 @@
+package com.mihailstoica.blog.event;
+
+import com.mihailstoica.blog.payload.CommentDto;
+
+public record CommentCreatedEvent(Long postId, CommentDto comment) {
+}
@@ -0,0 +1,5 @@
+package com.mihailstoica.blog.event;
+
+// published after a post is created, updated or imported; listeners run once the transaction commits
+public record PostSavedEvent(Long id, String title, String description, String content) {
+}
@@ -0,0 +1,4 @@
+package com.mihailstoica.blog.event;
+
+public record RoleChangedEvent(Long id) {
+}
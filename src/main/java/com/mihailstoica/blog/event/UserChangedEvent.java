@@ -0,0 +1,4 @@
+package com.mihailstoica.blog.event;
+
+public record UserChangedEvent(String email, String username) {
+}
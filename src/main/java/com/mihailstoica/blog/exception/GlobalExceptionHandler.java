@@ -1,9 +1,12 @@
 package com.mihailstoica.blog.exception;
 
 import com.mihailstoica.blog.payload.ErrorDetails;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -15,6 +18,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
@@ -37,7 +41,43 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(), exception.getMessage(),
                 webRequest.getDescription(false));
 
-        return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(errorDetails, exception.getStatus());
+    }
+
+    // the entity was changed by another request between read and write
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorDetails> handleOptimisticLockingFailure(OptimisticLockingFailureException exception,
+                                                                       WebRequest webRequest) {
+
+        ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(),
+                "The resource was modified concurrently, retry the request", webRequest.getDescription(false));
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+    }
+
+    // no database connection within the Hikari connection timeout: shed load instead of queueing requests
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ErrorDetails> handleDatabaseUnavailable(Exception exception, WebRequest webRequest) {
+
+        ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(), "Database is busy, retry later",
+                webRequest.getDescription(false));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorDetails);
+    }
+
+    // the password hashing queue is full (login or sign-up storm)
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorDetails> handleRejectedExecution(RejectedExecutionException exception,
+                                                                WebRequest webRequest) {
+
+        ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(), "Server is busy, retry later",
+                webRequest.getDescription(false));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorDetails);
     }
 
     // global exceptions
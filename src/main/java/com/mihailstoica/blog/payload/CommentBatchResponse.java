@@ -0,0 +1,18 @@
+package com.mihailstoica.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentBatchResponse {
+
+    private int created;
+    private int failed;
+    private List<CommentBatchResult> results;
+
+}
@@ -0,0 +1,23 @@
+package com.mihailstoica.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentBatchResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String INVALID = "INVALID";
+
+    // position of the comment in the request body
+    private int index;
+    private Long id;
+    private String status;
+    private Map<String, String> errors;
+
+}
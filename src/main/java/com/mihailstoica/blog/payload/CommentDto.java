@@ -1,13 +1,16 @@
 package com.mihailstoica.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Size;
+import java.time.Instant;
 
 @Data
-public class CommentDto {
+@JsonIgnoreProperties("revision")
+public class CommentDto implements EntityVersion {
 
     private Long id;
 
@@ -22,4 +25,7 @@ public class CommentDto {
     @Size(min = 10, message = "Body size should not be shorter than 10 characters")
     private String body;
 
+    // read only, set from the entity
+    private long version;
+    private Instant updatedAt;
 }
@@ -17,5 +17,7 @@ public class CommentResponse {
     private long totalElements;
     private int totalPages;
     private boolean last;
+    // only set in cursor mode, where totalElements and totalPages are not computed (-1)
+    private String nextCursor;
 
 }
\ No newline at end of file
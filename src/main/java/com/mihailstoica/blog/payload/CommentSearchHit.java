@@ -0,0 +1,18 @@
+package com.mihailstoica.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentSearchHit {
+
+    private Long id;
+    private String name;
+    private String email;
+    private String body;
+    private float rank;
+
+}
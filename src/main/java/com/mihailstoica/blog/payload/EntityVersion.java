@@ -0,0 +1,19 @@
+package com.mihailstoica.blog.payload;
+
+import java.time.Instant;
+
+// what conditional GET needs; implemented by the DTOs, whose ETag then always matches their body, and by
+// closed projections selecting it without the entity's body columns
+public interface EntityVersion {
+
+    Long getId();
+
+    long getVersion();
+
+    Instant getUpdatedAt();
+
+    // the part of the ETag that changes with the representation
+    default String getRevision() {
+        return String.valueOf(getVersion());
+    }
+}
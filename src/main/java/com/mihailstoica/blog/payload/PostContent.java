@@ -0,0 +1,13 @@
+package com.mihailstoica.blog.payload;
+
+// unmanaged projection of the indexed columns, so streaming it does not fill the persistence context
+public interface PostContent {
+
+    Long getId();
+
+    String getTitle();
+
+    String getDescription();
+
+    String getContent();
+}
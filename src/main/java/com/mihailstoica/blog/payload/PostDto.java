@@ -1,12 +1,16 @@
 package com.mihailstoica.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Size;
+import java.time.Instant;
 
+// carries its own version, so that the ETag of a cached post always describes the body it is sent with
 @Data
-public class PostDto {
+@JsonIgnoreProperties("revision")
+public class PostDto implements PostVersion {
 
     private Long id;
 
@@ -20,4 +24,12 @@ public class PostDto {
 
     @NotEmpty
     private String content;
+
+    // read only, maintained by the comment endpoints
+    private long commentCount;
+    private Instant lastCommentAt;
+
+    // read only, set from the entity
+    private long version;
+    private Instant updatedAt;
 }
@@ -0,0 +1,7 @@
+package com.mihailstoica.blog.payload;
+
+// summary with the first characters of the content, cut by the database
+public interface PostExcerpt extends PostSummary {
+
+    String getExcerpt();
+}
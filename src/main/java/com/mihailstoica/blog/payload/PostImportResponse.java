@@ -0,0 +1,19 @@
+package com.mihailstoica.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostImportResponse {
+
+    private long imported;
+    private long failed;
+    // first errors only, prefixed with the line number
+    private List<String> errors;
+
+}
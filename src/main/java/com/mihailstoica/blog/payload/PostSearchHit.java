@@ -0,0 +1,17 @@
+package com.mihailstoica.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostSearchHit {
+
+    private Long id;
+    private String title;
+    private String description;
+    private float rank;
+
+}
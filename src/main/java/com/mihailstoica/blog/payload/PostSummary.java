@@ -0,0 +1,17 @@
+package com.mihailstoica.blog.payload;
+
+import java.time.Instant;
+
+// closed projection: list queries select only these columns, never the post content
+public interface PostSummary {
+
+    Long getId();
+
+    String getTitle();
+
+    String getDescription();
+
+    long getCommentCount();
+
+    Instant getLastCommentAt();
+}
@@ -0,0 +1,24 @@
+package com.mihailstoica.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostSummaryDto {
+
+    private Long id;
+    private String title;
+    private String description;
+    private long commentCount;
+    private Instant lastCommentAt;
+    // only present when an excerpt length was requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String excerpt;
+
+}
@@ -0,0 +1,19 @@
+package com.mihailstoica.blog.payload;
+
+import java.time.Instant;
+
+// the comment count and last comment time are part of the post representation but are updated without
+// moving the version, so that comment writes do not fail concurrent post edits; the ETag combines them.
+// The count alone misses a comment deleted and another added, the time of the latter tells them apart.
+public interface PostVersion extends EntityVersion {
+
+    long getCommentCount();
+
+    Instant getLastCommentAt();
+
+    @Override
+    default String getRevision() {
+        String revision = getVersion() + "." + getCommentCount();
+        return getLastCommentAt() != null ? revision + "." + getLastCommentAt().toEpochMilli() : revision;
+    }
+}
@@ -0,0 +1,20 @@
+package com.mihailstoica.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchResponse<T> {
+
+    // ordered by rank, best match first
+    private List<T> content;
+    private int pageSize;
+    private boolean last;
+    private String nextCursor;
+
+}
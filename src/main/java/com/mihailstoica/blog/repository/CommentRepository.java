@@ -1,11 +1,55 @@
 package com.mihailstoica.blog.repository;
 
 import com.mihailstoica.blog.entity.Comment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
-public interface CommentRepository extends JpaRepository<Comment, Long> {
+public interface CommentRepository extends JpaRepository<Comment, Long>, CommentRepositoryCustom {
 
-    List<Comment> findByPostId(Long postId);
+    // comments of a soft-deleted post stay in place until the purge, so the queries below check the post as well
+
+    @Query("select c from Comment c where c.post.id = :postId and c.post.deletedAt is null")
+    List<Comment> findByPostId(@Param("postId") Long postId);
+
+    // served by the (post_id, id) index on comments
+    @Query("select c from Comment c where c.post.id = :postId and c.post.deletedAt is null")
+    Page<Comment> findByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    @Query("select c from Comment c where c.id = :id and c.post.id = :postId and c.post.deletedAt is null")
+    Optional<Comment> findByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @Modifying
+    @Query("delete from Comment c where c.id = :id and c.post.id = :postId")
+    int deleteByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @Modifying
+    @Query("update Comment c set c.deletedAt = :at, c.version = c.version + 1 " +
+            "where c.id = :id and c.post.id = :postId and c.deletedAt is null " +
+            "and exists (select p.id from Post p where p.id = :postId and p.deletedAt is null)")
+    int softDeleteByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId, @Param("at") Instant at);
+
+    // one statement for the whole thread, instead of the cascade loading and deleting comments one by one
+    @Modifying
+    @Query("delete from Comment c where c.post.id = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    // purge: bounded batches of soft-deleted comments, then of comments whose post was soft deleted
+
+    @Modifying
+    @Query(value = "delete from comments where id in " +
+            "(select id from comments where deleted_at < :before limit :batchSize)", nativeQuery = true)
+    int purgeDeleted(@Param("before") Instant before, @Param("batchSize") int batchSize);
+
+    @Modifying
+    @Query(value = "delete from comments where id in (select c.id from comments c join posts p on p.id = c.post_id " +
+            "where p.deleted_at < :before limit :batchSize)", nativeQuery = true)
+    int purgeOfDeletedPosts(@Param("before") Instant before, @Param("batchSize") int batchSize);
 }
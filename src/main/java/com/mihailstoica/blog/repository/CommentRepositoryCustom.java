@@ -0,0 +1,18 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.entity.Comment;
+import com.mihailstoica.blog.payload.CommentSearchHit;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface CommentRepositoryCustom {
+
+    // returns up to limit + 1 comments of the post following the cursor (or from the start when after is null)
+    List<Comment> findNextCommentsByPostId(Long postId, String sortBy, Sort.Direction direction,
+                                           KeysetCursor after, int limit);
+
+    // returns up to limit + 1 comments of the post matching the query, best ranked first, following the cursor
+    List<CommentSearchHit> searchCommentsByPostId(Long postId, String query, KeysetCursor after, int limit);
+}
@@ -0,0 +1,77 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.entity.Comment;
+import com.mihailstoica.blog.payload.CommentSearchHit;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+public class CommentRepositoryCustomImpl implements CommentRepositoryCustom {
+
+    // matches through the GIN index on comments.search_vector, then ranks only the matching rows
+    private static final String SEARCH_SQL = """
+            select id, name, email, body, rank from (
+                select c.id, c.name, c.email, c.body, ts_rank(c.search_vector, tsq) as rank
+                from comments c join posts p on p.id = c.post_id and p.deleted_at is null,
+                    websearch_to_tsquery(cast(:config as regconfig), :query) tsq
+                where c.post_id = :postId and c.search_vector @@ tsq and c.deleted_at is null
+            ) ranked
+            where rank < :afterRank or (rank = :afterRank and id > :afterId)
+            order by rank desc, id
+            limit :limit
+            """;
+
+    private static final String FALLBACK_JPQL = """
+            select c.id, c.name, c.email, c.body from Comment c
+            where c.post.id = :postId and c.post.deletedAt is null
+              and lower(c.body) like :pattern escape '\\'
+              and c.id > :afterId
+            order by c.id
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Comment> findNextCommentsByPostId(Long postId, String sortBy, Sort.Direction direction,
+                                                  KeysetCursor after, int limit) {
+        return KeysetQueries.findNext(entityManager, Comment.class,
+                (cb, root) -> cb.and(
+                        cb.equal(root.get("post").get("id"), postId),
+                        cb.isNull(root.get("post").get("deletedAt"))),
+                sortBy, direction, after, limit);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CommentSearchHit> searchCommentsByPostId(Long postId, String query, KeysetCursor after, int limit) {
+
+        if (FullTextQueries.isPostgres(entityManager)) {
+            List<Object[]> rows = entityManager.createNativeQuery(SEARCH_SQL)
+                    .setParameter("config", FullTextQueries.TEXT_SEARCH_CONFIG)
+                    .setParameter("query", query)
+                    .setParameter("postId", postId)
+                    .setParameter("afterRank", FullTextQueries.afterRank(after))
+                    .setParameter("afterId", FullTextQueries.afterId(after))
+                    .setParameter("limit", limit + 1)
+                    .getResultList();
+            return rows.stream()
+                    .map(row -> new CommentSearchHit(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                            (String) row[3], ((Number) row[4]).floatValue()))
+                    .toList();
+        }
+
+        return entityManager.createQuery(FALLBACK_JPQL, Object[].class)
+                .setParameter("postId", postId)
+                .setParameter("pattern", FullTextQueries.likePattern(query))
+                .setParameter("afterId", FullTextQueries.afterId(after))
+                .setMaxResults(limit + 1)
+                .getResultList()
+                .stream()
+                .map(row -> new CommentSearchHit((Long) row[0], (String) row[1], (String) row[2], (String) row[3], 0f))
+                .toList();
+    }
+}
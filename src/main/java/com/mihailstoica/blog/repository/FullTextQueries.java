@@ -0,0 +1,51 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.http.HttpStatus;
+
+import javax.persistence.EntityManager;
+
+// helpers shared by the search fragments: results are ordered by (rank desc, id asc) and paged by seeking
+// past the last (rank, id); databases without tsvector support fall back to a LIKE scan where rank is 0
+final class FullTextQueries {
+
+    static final String TEXT_SEARCH_CONFIG = "english";
+
+    private FullTextQueries() {
+    }
+
+    static boolean isPostgres(EntityManager entityManager) {
+        return entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQL81Dialect;
+    }
+
+    // the first page seeks past a rank no result can reach
+    static float afterRank(KeysetCursor after) {
+        if (after == null) {
+            return Float.MAX_VALUE;
+        }
+        try {
+            return Float.parseFloat(after.getValue());
+        } catch (NullPointerException | NumberFormatException ex) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    static long afterId(KeysetCursor after) {
+        return after == null ? 0L : after.getId();
+    }
+
+    // case-insensitive substring pattern with LIKE wildcards escaped by '\'
+    static String likePattern(String query) {
+        String escaped = query.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,121 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.SingularAttribute;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// seek-method queries shared by the repository fragments: WHERE (sortBy, id) > (:value, :id)
+// ORDER BY sortBy, id LIMIT :limit - no OFFSET and no count query, so every page costs the same.
+// A nullable sort key puts its nulls last in either direction, ordered by id among themselves.
+final class KeysetQueries {
+
+    private static final String ID = "id";
+
+    private KeysetQueries() {
+    }
+
+    // fetches limit + 1 rows, the extra one tells the caller whether another page exists
+    static <T> List<T> findNext(EntityManager entityManager, Class<T> type,
+                                BiFunction<CriteriaBuilder, Root<T>, Predicate> filter,
+                                String sortBy, Sort.Direction direction, KeysetCursor after, int limit) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+
+        Path<Comparable<Object>> sortPath = sortPath(root, sortBy);
+        Path<Long> idPath = root.get(ID);
+        boolean nullable = isNullable(root, sortBy);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter != null) {
+            predicates.add(filter.apply(cb, root));
+        }
+        if (after != null) {
+            predicates.add(seek(cb, sortPath, idPath, sortBy, nullable, direction, after));
+        }
+        query.select(root).where(predicates.toArray(new Predicate[0]));
+
+        List<Order> orders = new ArrayList<>();
+        if (nullable) {
+            // JPA criteria have no NULLS LAST, and databases differ on where nulls go by default
+            orders.add(cb.asc(cb.selectCase().when(cb.isNull(sortPath), 1).otherwise(0)));
+        }
+        if (direction.isAscending()) {
+            orders.add(cb.asc(sortPath));
+            orders.add(cb.asc(idPath));
+        } else {
+            orders.add(cb.desc(sortPath));
+            orders.add(cb.desc(idPath));
+        }
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit + 1)
+                .getResultList();
+    }
+
+    private static <T> Path<Comparable<Object>> sortPath(Root<T> root, String sortBy) {
+        try {
+            return root.get(sortBy);
+        } catch (IllegalArgumentException ex) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Unsupported sort property: " + sortBy);
+        }
+    }
+
+    private static <T> boolean isNullable(Root<T> root, String sortBy) {
+        return root.getModel().getAttribute(sortBy) instanceof SingularAttribute<?, ?> attribute
+                && attribute.isOptional() && !attribute.getJavaType().isPrimitive();
+    }
+
+    private static Predicate seek(CriteriaBuilder cb, Path<Comparable<Object>> sortPath, Path<Long> idPath,
+                                  String sortBy, boolean nullable, Sort.Direction direction, KeysetCursor after) {
+
+        boolean asc = direction.isAscending();
+        Predicate idAfter = asc ? cb.greaterThan(idPath, after.getId()) : cb.lessThan(idPath, after.getId());
+
+        if (ID.equals(sortBy)) {
+            return idAfter;
+        }
+        // the last row had a null key: only the nulls after it are left
+        if (after.getValue() == null) {
+            return cb.and(cb.isNull(sortPath), idAfter);
+        }
+
+        Comparable<Object> value = toSortValue(sortPath.getJavaType(), after.getValue());
+        Predicate sortAfter = asc ? cb.greaterThan(sortPath, value) : cb.lessThan(sortPath, value);
+        Predicate seek = cb.or(sortAfter, cb.and(cb.equal(sortPath, value), idAfter));
+        return nullable ? cb.or(seek, cb.isNull(sortPath)) : seek;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> toSortValue(Class<?> javaType, String value) {
+        try {
+            if (Long.class.equals(javaType) || long.class.equals(javaType)) {
+                return (Comparable<Object>) (Comparable<?>) Long.valueOf(value);
+            }
+            if (Integer.class.equals(javaType) || int.class.equals(javaType)) {
+                return (Comparable<Object>) (Comparable<?>) Integer.valueOf(value);
+            }
+            if (String.class.equals(javaType)) {
+                return (Comparable<Object>) (Comparable<?>) value;
+            }
+            if (Instant.class.equals(javaType)) {
+                return (Comparable<Object>) (Comparable<?>) Instant.parse(value);
+            }
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        throw new BlogApiException(HttpStatus.BAD_REQUEST, "Unsupported sort property type: " + javaType.getSimpleName());
+    }
+}
@@ -1,7 +1,87 @@
 package com.mihailstoica.blog.repository;
 
 import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.PostContent;
+import com.mihailstoica.blog.payload.PostExcerpt;
+import com.mihailstoica.blog.payload.PostSummary;
+import com.mihailstoica.blog.payload.PostVersion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface PostRepository extends JpaRepository<Post, Long> {
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface PostRepository extends JpaRepository<Post, Long>, PostRepositoryCustom {
+
+    Optional<PostVersion> findVersionById(Long id);
+
+    Page<PostSummary> findAllProjectedBy(Pageable pageable);
+
+    @Query(value = "select p.id as id, p.title as title, p.description as description, " +
+            "p.commentCount as commentCount, p.lastCommentAt as lastCommentAt, " +
+            "substring(p.content, 1, :length) as excerpt from Post p",
+            countQuery = "select count(p) from Post p")
+    Page<PostExcerpt> findAllExcerpts(@Param("length") int length, Pageable pageable);
+
+    // forward-only cursor, must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select p from Post p order by p.id")
+    Stream<Post> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select p.id as id, p.title as title, p.description as description, p.content as content from Post p")
+    Stream<PostContent> streamAllContents();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select p.id as id, p.title as title, p.description as description, p.content as content from Post p " +
+            "where p.updatedAt > :since")
+    Stream<PostContent> streamContentsUpdatedAfter(@Param("since") Instant since);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+    @Query("select p.id from Post p order by p.id")
+    Stream<Long> streamAllIds();
+
+    List<PostSummary> findSummariesByIdIn(Collection<Long> ids);
+
+    // bulk delete that skips loading the post and its comments collection
+    @Modifying
+    @Query("delete from Post p where p.id = :id")
+    int deletePostById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Post p set p.deletedAt = :at, p.version = p.version + 1 where p.id = :id and p.deletedAt is null")
+    int softDeletePostById(@Param("id") Long id, @Param("at") Instant at);
+
+    // purge: posts soft deleted before the cutoff once their comments are gone
+    @Modifying
+    @Query(value = "delete from posts where id in (select p.id from posts p where p.deleted_at < :before " +
+            "and not exists (select 1 from comments c where c.post_id = p.id) limit :batchSize)", nativeQuery = true)
+    int purgeDeleted(@Param("before") Instant before, @Param("batchSize") int batchSize);
+
+    // single-statement counter updates: no read-modify-write race, and the row count doubles as existence check;
+    // the version is left alone, so that comment writes never fail a concurrent post edit (see PostVersion)
+    @Modifying
+    @Query("update Post p set p.commentCount = p.commentCount + :count, p.lastCommentAt = :at, " +
+            "p.updatedAt = :at where p.id = :id and p.deletedAt is null")
+    int addComments(@Param("id") Long id, @Param("count") long count, @Param("at") Instant at);
+
+    @Modifying
+    @Query("update Post p set p.commentCount = p.commentCount - 1, p.updatedAt = :at " +
+            "where p.id = :id and p.commentCount > 0 and p.deletedAt is null")
+    int removeComment(@Param("id") Long id, @Param("at") Instant at);
 }
@@ -0,0 +1,17 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.PostSearchHit;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface PostRepositoryCustom {
+
+    // returns up to limit + 1 posts following the cursor (or from the start when after is null)
+    List<Post> findNextPosts(String sortBy, Sort.Direction direction, KeysetCursor after, int limit);
+
+    // returns up to limit + 1 posts matching the query, best ranked first, following the cursor
+    List<PostSearchHit> searchPosts(String query, KeysetCursor after, int limit);
+}
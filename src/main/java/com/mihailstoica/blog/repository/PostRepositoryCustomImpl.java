@@ -0,0 +1,70 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.PostSearchHit;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+public class PostRepositoryCustomImpl implements PostRepositoryCustom {
+
+    // matches through the GIN index on posts.search_vector, then ranks only the matching rows
+    private static final String SEARCH_SQL = """
+            select id, title, description, rank from (
+                select p.id, p.title, p.description, ts_rank(p.search_vector, tsq) as rank
+                from posts p, websearch_to_tsquery(cast(:config as regconfig), :query) tsq
+                where p.search_vector @@ tsq and p.deleted_at is null
+            ) ranked
+            where rank < :afterRank or (rank = :afterRank and id > :afterId)
+            order by rank desc, id
+            limit :limit
+            """;
+
+    private static final String FALLBACK_JPQL = """
+            select p.id, p.title, p.description from Post p
+            where (lower(p.title) like :pattern escape '\\'
+                or lower(p.description) like :pattern escape '\\'
+                or lower(p.content) like :pattern escape '\\')
+              and p.id > :afterId
+            order by p.id
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Post> findNextPosts(String sortBy, Sort.Direction direction, KeysetCursor after, int limit) {
+        return KeysetQueries.findNext(entityManager, Post.class, null, sortBy, direction, after, limit);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<PostSearchHit> searchPosts(String query, KeysetCursor after, int limit) {
+
+        if (FullTextQueries.isPostgres(entityManager)) {
+            List<Object[]> rows = entityManager.createNativeQuery(SEARCH_SQL)
+                    .setParameter("config", FullTextQueries.TEXT_SEARCH_CONFIG)
+                    .setParameter("query", query)
+                    .setParameter("afterRank", FullTextQueries.afterRank(after))
+                    .setParameter("afterId", FullTextQueries.afterId(after))
+                    .setParameter("limit", limit + 1)
+                    .getResultList();
+            return rows.stream()
+                    .map(row -> new PostSearchHit(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                            ((Number) row[3]).floatValue()))
+                    .toList();
+        }
+
+        return entityManager.createQuery(FALLBACK_JPQL, Object[].class)
+                .setParameter("pattern", FullTextQueries.likePattern(query))
+                .setParameter("afterId", FullTextQueries.afterId(after))
+                .setMaxResults(limit + 1)
+                .getResultList()
+                .stream()
+                .map(row -> new PostSearchHit((Long) row[0], (String) row[1], (String) row[2], 0f))
+                .toList();
+    }
+}
@@ -0,0 +1,26 @@
+package com.mihailstoica.blog.repository.reactive;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+// R2DBC read model of the comments table, which is owned and written by the JPA Comment entity
+@Data
+@Table("comments")
+public class CommentRow {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String email;
+
+    private String body;
+
+    private Long postId;
+
+    private Instant deletedAt;
+}
@@ -0,0 +1,28 @@
+package com.mihailstoica.blog.repository.reactive;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+// R2DBC read model of the posts table, which is owned and written by the JPA Post entity
+@Data
+@Table("posts")
+public class PostRow {
+
+    @Id
+    private Long id;
+
+    private String title;
+
+    private String description;
+
+    private String content;
+
+    private long commentCount;
+
+    private Instant lastCommentAt;
+
+    private Instant deletedAt;
+}
@@ -0,0 +1,11 @@
+package com.mihailstoica.blog.repository.reactive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+
+// read only; callers check that the post itself is not deleted
+public interface ReactiveCommentRepository extends R2dbcRepository<CommentRow, Long> {
+
+    Flux<CommentRow> findByPostIdAndDeletedAtIsNull(Long postId, Pageable pageable);
+}
@@ -0,0 +1,16 @@
+package com.mihailstoica.blog.repository.reactive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// read only; the deleted_at filters stand in for the @Where of the JPA entity
+public interface ReactivePostRepository extends R2dbcRepository<PostRow, Long> {
+
+    Flux<PostRow> findByDeletedAtIsNull(Pageable pageable);
+
+    Mono<PostRow> findByIdAndDeletedAtIsNull(Long id);
+
+    Mono<Boolean> existsByIdAndDeletedAtIsNull(Long id);
+}
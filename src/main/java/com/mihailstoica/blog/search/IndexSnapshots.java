@@ -0,0 +1,118 @@
+package com.mihailstoica.blog.search;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// binary snapshot of an InvertedIndex: header (magic, format, creation time), then per term its UTF-8 bytes
+// and its ids as delta-encoded varints, then -1. Snapshots are read through a memory-mapped file.
+public final class IndexSnapshots {
+
+    private static final int MAGIC = 0x50494458;
+
+    private static final int FORMAT = 1;
+
+    private static final int END = -1;
+
+    private IndexSnapshots() {
+    }
+
+    // writes to a temporary file first, so a crash never leaves a truncated snapshot behind
+    public static void write(InvertedIndex index, Path path, long createdAt) throws IOException {
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(createdAt);
+
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            index.forEachPostingList((term, ids) -> {
+                try {
+                    encoded.reset();
+                    long previous = 0;
+                    for (long id : ids) {
+                        writeVarLong(encoded, id - previous);
+                        previous = id;
+                    }
+
+                    byte[] termBytes = term.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(termBytes.length);
+                    out.write(termBytes);
+                    out.writeInt(ids.length);
+                    out.writeInt(encoded.size());
+                    encoded.writeTo(out);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            out.writeInt(END);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // loads the snapshot into the given empty index and returns its creation time
+    public static long read(Path path, InvertedIndex index) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("Not an index snapshot: " + path);
+            }
+            long createdAt = buffer.getLong();
+
+            int termLength;
+            while ((termLength = buffer.getInt()) != END) {
+                byte[] termBytes = new byte[termLength];
+                buffer.get(termBytes);
+                long[] ids = new long[buffer.getInt()];
+                int end = buffer.getInt() + buffer.position();
+
+                long previous = 0;
+                for (int i = 0; i < ids.length; i++) {
+                    previous += readVarLong(buffer);
+                    ids[i] = previous;
+                }
+                if (buffer.position() != end) {
+                    throw new IOException("Corrupt index snapshot: " + path);
+                }
+                index.load(new String(termBytes, StandardCharsets.UTF_8), ids);
+            }
+            index.completeLoad();
+            return createdAt;
+        } catch (BufferUnderflowException | NegativeArraySizeException ex) {
+            throw new IOException("Corrupt index snapshot: " + path, ex);
+        }
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,450 @@
+package com.mihailstoica.blog.search;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import org.springframework.http.HttpStatus;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+// term -> sorted long[] of document ids; the dictionary is sorted so that prefix queries are a sub map scan.
+// Query syntax: terms are AND-ed, "OR" separates alternatives, "-term" excludes and "term*" matches a prefix.
+// Queries walk the posting lists in place, skipping ahead to afterId, and stop after limit matches.
+public class InvertedIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final long[] EMPTY = new long[0];
+
+    // returned by IdCursor.seek when no id is left
+    private static final long END = Long.MAX_VALUE;
+
+    private static final IdCursor NO_IDS = target -> END;
+
+    // "term*" needs this many characters and expands to at most this many terms
+    static final int MIN_PREFIX_LENGTH = 3;
+    static final int MAX_PREFIX_TERMS = 1000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+
+    // terms of every document, needed to remove it from its posting lists on update or delete
+    private final LongObjectMap<String[]> documentTerms = new LongObjectMap<>();
+
+    // lower-cased words of the given fields, without duplicates
+    public static Set<String> terms(String... fields) {
+
+        Set<String> terms = new LinkedHashSet<>();
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (String term : NON_WORD.split(field.toLowerCase(Locale.ROOT))) {
+                if (!term.isEmpty()) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+    // add the document or replace its previous terms
+    public void index(long id, Set<String> terms) {
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            String[] interned = new String[terms.size()];
+            int i = 0;
+            for (String term : terms) {
+                // keep one String instance per term, shared by the dictionary and the document terms
+                Map.Entry<String, PostingList> entry = postings.ceilingEntry(term);
+                PostingList postingList;
+                if (entry != null && entry.getKey().equals(term)) {
+                    interned[i++] = entry.getKey();
+                    postingList = entry.getValue();
+                } else {
+                    interned[i++] = term;
+                    postingList = new PostingList();
+                    postings.put(term, postingList);
+                }
+                postingList.add(id);
+            }
+            documentTerms.put(id, interned);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeDocument(long id) {
+
+        String[] terms = documentTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList postingList = postings.get(term);
+            postingList.remove(id);
+            if (postingList.size == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // ids of matching documents in ascending order, starting after afterId, at most limit of them
+    public long[] search(String query, long afterId, int limit) {
+
+        List<List<String>> alternatives = parse(query);
+        if (afterId == END || limit <= 0) {
+            return EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<IdCursor> matches = new ArrayList<>();
+            for (List<String> clauses : alternatives) {
+                IdCursor cursor = evaluate(clauses);
+                if (cursor != NO_IDS) {
+                    matches.add(cursor);
+                }
+            }
+            IdCursor cursor = union(matches);
+
+            long[] result = new long[Math.min(limit, 16)];
+            int n = 0;
+            for (long id = cursor.seek(afterId + 1); id != END; id = cursor.seek(id + 1)) {
+                if (n == result.length) {
+                    result = Arrays.copyOf(result, (int) Math.min(limit, 2L * n));
+                }
+                result[n++] = id;
+                if (n == limit) {
+                    break;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // one list of AND-ed clauses per OR alternative
+    private static List<List<String>> parse(String query) {
+
+        List<List<String>> alternatives = new ArrayList<>();
+        List<String> clauses = new ArrayList<>();
+        for (String token : query.trim().split("\\s+")) {
+            if (token.equals("OR")) {
+                alternatives.add(clauses);
+                clauses = new ArrayList<>();
+            } else if (!token.isEmpty() && !token.equals("AND")) {
+                clauses.add(token);
+            }
+        }
+        alternatives.add(clauses);
+        return alternatives;
+    }
+
+    private IdCursor evaluate(List<String> clauses) {
+
+        List<IdCursor> included = new ArrayList<>();
+        List<IdCursor> excluded = new ArrayList<>();
+
+        for (String clause : clauses) {
+            boolean negated = clause.startsWith("-");
+            boolean prefix = clause.endsWith("*");
+            List<String> words = new ArrayList<>(terms(clause));
+            if (words.isEmpty()) {
+                continue;
+            }
+
+            for (int i = 0; i < words.size(); i++) {
+                boolean lastWord = i == words.size() - 1;
+                IdCursor ids = prefix && lastWord ? prefixPostings(words.get(i)) : exactPostings(words.get(i));
+                (negated ? excluded : included).add(ids);
+            }
+        }
+
+        // exclusions alone do not select anything, and a term without documents leaves nothing to intersect
+        if (included.isEmpty() || included.contains(NO_IDS)) {
+            return NO_IDS;
+        }
+        excluded.remove(NO_IDS);
+        return new IntersectionCursor(included, excluded);
+    }
+
+    private IdCursor exactPostings(String term) {
+
+        PostingList postingList = postings.get(term);
+        return postingList == null ? NO_IDS : new PostingCursor(postingList);
+    }
+
+    private IdCursor prefixPostings(String prefix) {
+
+        if (prefix.length() < MIN_PREFIX_LENGTH) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST,
+                    "A prefix query needs at least " + MIN_PREFIX_LENGTH + " characters before *");
+        }
+
+        // the first MAX_PREFIX_TERMS matching terms in dictionary order, the rest of the expansion is dropped
+        List<IdCursor> postingLists = new ArrayList<>();
+        for (PostingList postingList : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (postingLists.size() == MAX_PREFIX_TERMS) {
+                break;
+            }
+            postingLists.add(new PostingCursor(postingList));
+        }
+        return union(postingLists);
+    }
+
+    public int documentCount() {
+
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ids of all indexed documents in ascending order
+    public long[] documentIds() {
+
+        lock.readLock().lock();
+        try {
+            long[] ids = documentTerms.keys();
+            Arrays.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // visit every term with its sorted ids, in term order; used to write snapshots
+    void forEachPostingList(BiConsumer<String, long[]> consumer) {
+
+        lock.readLock().lock();
+        try {
+            postings.forEach((term, postingList) -> consumer.accept(term, Arrays.copyOf(postingList.ids, postingList.size)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // bulk load of one term with its sorted ids into an empty index; completeLoad() must follow
+    void load(String term, long[] ids) {
+
+        lock.writeLock().lock();
+        try {
+            postings.put(term, new PostingList(ids));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // derive the terms of every document from the loaded posting lists, sizing each array up front
+    void completeLoad() {
+
+        lock.writeLock().lock();
+        try {
+            LongObjectMap<int[]> termCounts = new LongObjectMap<>();
+            postings.values().forEach(postingList -> {
+                for (int i = 0; i < postingList.size; i++) {
+                    int[] count = termCounts.get(postingList.ids[i]);
+                    if (count == null) {
+                        count = new int[1];
+                        termCounts.put(postingList.ids[i], count);
+                    }
+                    count[0]++;
+                }
+            });
+
+            documentTerms.clear();
+            termCounts.forEach((count, id) -> documentTerms.put(id, new String[count[0]]));
+            postings.forEach((term, postingList) -> {
+                for (int i = 0; i < postingList.size; i++) {
+                    long id = postingList.ids[i];
+                    int[] remaining = termCounts.get(id);
+                    documentTerms.get(id)[--remaining[0]] = term;
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static IdCursor union(List<IdCursor> cursors) {
+
+        if (cursors.isEmpty()) {
+            return NO_IDS;
+        }
+        return cursors.size() == 1 ? cursors.get(0) : new UnionCursor(cursors);
+    }
+
+    // ascending ids of a set, consumed by skipping ahead; seek targets never decrease
+    private interface IdCursor {
+
+        // the smallest id at or after target, END when there is none
+        long seek(long target);
+    }
+
+    // reads the posting list's own array, valid while the read lock is held
+    private static final class PostingCursor implements IdCursor {
+
+        private final PostingList postingList;
+        private int position;
+
+        private PostingCursor(PostingList postingList) {
+            this.postingList = postingList;
+        }
+
+        @Override
+        public long seek(long target) {
+
+            long[] ids = postingList.ids;
+            int size = postingList.size;
+            if (position < size && ids[position] >= target) {
+                return ids[position];
+            }
+            // gallop from the current position, then binary search the last step
+            int low = position;
+            int step = 1;
+            while (low + step < size && ids[low + step] < target) {
+                low += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(ids, low, Math.min(size, low + step + 1), target);
+            position = found >= 0 ? found : -found - 1;
+            return position < size ? ids[position] : END;
+        }
+    }
+
+    // AND of the included cursors, minus the excluded ones: leapfrogs to the next id all included agree on
+    private static final class IntersectionCursor implements IdCursor {
+
+        private final List<IdCursor> included;
+        private final List<IdCursor> excluded;
+
+        private IntersectionCursor(List<IdCursor> included, List<IdCursor> excluded) {
+            this.included = included;
+            this.excluded = excluded;
+        }
+
+        @Override
+        public long seek(long target) {
+
+            long candidate = target;
+            int agreed = 0;
+            for (int k = 0; agreed < included.size(); k = (k + 1) % included.size()) {
+                long id = included.get(k).seek(candidate);
+                if (id == END) {
+                    return END;
+                }
+                if (id == candidate) {
+                    agreed++;
+                } else {
+                    candidate = id;
+                    agreed = 1;
+                }
+                if (agreed == included.size() && isExcluded(candidate)) {
+                    candidate++;
+                    agreed = 0;
+                }
+            }
+            return candidate;
+        }
+
+        private boolean isExcluded(long id) {
+
+            for (IdCursor cursor : excluded) {
+                if (cursor.seek(id) == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // OR of the cursors, each positioned on its own next id
+    private static final class UnionCursor implements IdCursor {
+
+        private final List<IdCursor> cursors;
+
+        private UnionCursor(List<IdCursor> cursors) {
+            this.cursors = cursors;
+        }
+
+        @Override
+        public long seek(long target) {
+
+            long next = END;
+            for (IdCursor cursor : cursors) {
+                next = Math.min(next, cursor.seek(target));
+            }
+            return next;
+        }
+    }
+
+    // growable sorted array; ids mostly arrive in increasing order, which makes add an append
+    private static final class PostingList {
+
+        private long[] ids;
+        private int size;
+
+        private PostingList() {
+            this.ids = new long[4];
+        }
+
+        private PostingList(long[] ids) {
+            this.ids = ids;
+            this.size = ids.length;
+        }
+
+        private void add(long id) {
+
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        private void remove(long id) {
+
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+}
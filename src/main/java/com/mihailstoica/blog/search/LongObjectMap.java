@@ -0,0 +1,143 @@
+package com.mihailstoica.blog.search;
+
+import java.util.function.ObjLongConsumer;
+
+// open addressing map from primitive long keys with linear probing, so that the index keeps no boxed Long and
+// no entry object per document; not thread safe, InvertedIndex guards it with its lock. Values are never null,
+// a null value marks an empty slot.
+final class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private Object[] values = new Object[MIN_CAPACITY];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    // returns the previous value, if any
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // at most 3/4 full, so that probe sequences stay short
+        if (++size > keys.length - (keys.length >> 2)) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    // returns the removed value, if any
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = (V) values[slot];
+
+        // shift the rest of the probe sequence back over the gap, no tombstones are left behind
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = home(keys[next], mask);
+            // the entry may move into the gap unless its home lies between the gap and its slot
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    void clear() {
+
+        keys = new long[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+        size = 0;
+    }
+
+    // keys in no particular order
+    long[] keys() {
+
+        long[] result = new long[size];
+        int n = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                result[n++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(ObjLongConsumer<V> consumer) {
+
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                consumer.accept((V) values[slot], keys[slot]);
+            }
+        }
+    }
+
+    private int find(long key) {
+
+        int mask = keys.length - 1;
+        for (int slot = home(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = home(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // sequential ids would fill runs of neighbouring slots, the multiplication spreads them
+    private static int home(long key, int mask) {
+
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
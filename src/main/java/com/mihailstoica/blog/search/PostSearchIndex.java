@@ -0,0 +1,182 @@
+package com.mihailstoica.blog.search;
+
+import com.mihailstoica.blog.event.PostDeletedEvent;
+import com.mihailstoica.blog.event.PostSavedEvent;
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.payload.PostContent;
+import com.mihailstoica.blog.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.stream.Stream;
+
+// in-process post search (app.search.mode=index): built at startup from the last snapshot plus the posts
+// changed since, or from all posts, then kept up to date from post events; written back to the snapshot
+// on shutdown
+@Component
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "index")
+public class PostSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    // posts changed shortly before a snapshot was taken are indexed again, to cover clock skew
+    private static final Duration SNAPSHOT_OVERLAP = Duration.ofMinutes(5);
+
+    private final PostRepository postRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${app.search.index.snapshot-path:}")
+    private String snapshotPath;
+
+    private volatile InvertedIndex index = new InvertedIndex();
+
+    // events received while the index is being built, replayed once it is complete; guarded by this
+    private final Queue<Object> pendingEvents = new ArrayDeque<>();
+
+    private volatile boolean ready;
+
+    public PostSearchIndex(PostRepository postRepository, PlatformTransactionManager transactionManager) {
+        this.postRepository = postRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+
+        long startedAt = System.currentTimeMillis();
+        InvertedIndex built = new InvertedIndex();
+        Instant snapshotTime = readSnapshot(built);
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            if (snapshotTime == null) {
+                try (Stream<PostContent> posts = postRepository.streamAllContents()) {
+                    posts.forEach(post -> index(built, post));
+                }
+            } else {
+                try (Stream<PostContent> posts =
+                             postRepository.streamContentsUpdatedAfter(snapshotTime.minus(SNAPSHOT_OVERLAP))) {
+                    posts.forEach(post -> index(built, post));
+                }
+                removeDeletedPosts(built);
+            }
+        });
+
+        synchronized (this) {
+            index = built;
+            ready = true;
+            pendingEvents.forEach(this::apply);
+            pendingEvents.clear();
+        }
+        log.info("Post search index ready: {} posts, {} terms in {} ms", built.documentCount(), built.termCount(),
+                System.currentTimeMillis() - startedAt);
+    }
+
+    private Instant readSnapshot(InvertedIndex target) {
+
+        Path path = snapshotPath();
+        if (path == null || !Files.exists(path)) {
+            return null;
+        }
+        try {
+            return Instant.ofEpochMilli(IndexSnapshots.read(path, target));
+        } catch (IOException ex) {
+            log.warn("Ignoring unreadable search index snapshot {}, rebuilding from the database", path, ex);
+            target.completeLoad();
+            return null;
+        }
+    }
+
+    // walk the sorted ids of the index and of the database together, dropping ids the database no longer has
+    private void removeDeletedPosts(InvertedIndex target) {
+
+        long[] indexed = target.documentIds();
+        try (Stream<Long> ids = postRepository.streamAllIds()) {
+            Iterator<Long> existing = ids.iterator();
+            long current = existing.hasNext() ? existing.next() : Long.MAX_VALUE;
+            for (long id : indexed) {
+                while (current < id) {
+                    current = existing.hasNext() ? existing.next() : Long.MAX_VALUE;
+                }
+                if (current != id) {
+                    target.remove(id);
+                }
+            }
+        }
+    }
+
+    private static void index(InvertedIndex target, PostContent post) {
+        target.index(post.getId(), InvertedIndex.terms(post.getTitle(), post.getDescription(), post.getContent()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostSaved(PostSavedEvent event) {
+        enqueueOrApply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        enqueueOrApply(event);
+    }
+
+    private synchronized void enqueueOrApply(Object event) {
+
+        if (ready) {
+            apply(event);
+        } else {
+            pendingEvents.add(event);
+        }
+    }
+
+    private void apply(Object event) {
+
+        if (event instanceof PostSavedEvent saved) {
+            index.index(saved.id(), InvertedIndex.terms(saved.title(), saved.description(), saved.content()));
+        } else if (event instanceof PostDeletedEvent deleted) {
+            index.remove(deleted.id());
+        }
+    }
+
+    // ids of the matching posts in ascending order, after afterId
+    public long[] search(String query, long afterId, int limit) {
+
+        if (!ready) {
+            throw new BlogApiException(HttpStatus.SERVICE_UNAVAILABLE, "Search index is still loading");
+        }
+        return index.search(query, afterId, limit);
+    }
+
+    @PreDestroy
+    public void writeSnapshot() throws IOException {
+
+        Path path = snapshotPath();
+        if (path == null || !ready) {
+            return;
+        }
+        IndexSnapshots.write(index, path, System.currentTimeMillis());
+    }
+
+    private Path snapshotPath() {
+        return StringUtils.hasText(snapshotPath) ? Path.of(snapshotPath) : null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.mihailstoica.blog.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+
+// runs the hashing of the delegate on a small pool with a bounded queue. A login storm then uses at most
+// threads + queueCapacity request threads, waiting for a hash, instead of all of Tomcat's; the requests
+// beyond that are rejected right away (503) rather than queueing behind the CPU.
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    public static final String HASH_TIMER = "blog.password.hash";
+
+    public static final String WAIT_TIMER = "blog.password.hash.wait";
+
+    public static final String QUEUE_GAUGE = "blog.password.hash.queue";
+
+    public static final String REJECTED_COUNTER = "blog.password.hash.rejected";
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.rejected = Counter.builder(REJECTED_COUNTER)
+                .description("Password hashes rejected because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder(QUEUE_GAUGE, executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash("encode", () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash("matches", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // cheap, only parses the stored hash
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T hash(String operation, Callable<T> hashing) {
+
+        long submittedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                meterRegistry.timer(WAIT_TIMER, "operation", operation)
+                        .record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return meterRegistry.timer(HASH_TIMER, "operation", operation).recordCallable(hashing);
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw ex;
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
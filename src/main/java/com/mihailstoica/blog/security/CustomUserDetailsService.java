@@ -1,21 +1,24 @@
 package com.mihailstoica.blog.security;
 
+import com.mihailstoica.blog.config.ReadFromPrimary;
 import com.mihailstoica.blog.entity.Role;
 import com.mihailstoica.blog.entity.User;
 import com.mihailstoica.blog.repository.UserRepository;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -23,6 +26,9 @@ public class CustomUserDetailsService implements UserDetailsService {
         this.userRepository = userRepository;
     }
 
+    // the result goes to the user cache (JWT filter), so it is read from the primary like the cached posts
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
         User user = userRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
@@ -33,6 +39,21 @@ public class CustomUserDetailsService implements UserDetailsService {
                 user.getEmail(), user.getPassword(), mapRolesToAuthorities(user.getRoles()));
     }
 
+    // called by the authentication provider after a successful login when the stored hash needs an upgrade;
+    // the username of the UserDetails is the email
+    @Transactional
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsernameOrEmail(userDetails.getUsername(), userDetails.getUsername())
+                .orElseThrow(() ->
+                        new UsernameNotFoundException("User not found with username or email:" + userDetails.getUsername()));
+        user.setPassword(newPassword);
+
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
     private Collection < ? extends GrantedAuthority> mapRolesToAuthorities(Set<Role> roles) {
         return roles.stream()
                     .map(role -> new SimpleGrantedAuthority(role.getName()))
@@ -1,52 +1,131 @@
 package com.mihailstoica.blog.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.mihailstoica.blog.exception.BlogApiException;
 import io.jsonwebtoken.*;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.mihailstoica.blog.config.MetricsConfig.JWT_TIMER;
 
 @Component
 public class JwtTokenProvider {
 
+    private static final String ROLES_CLAIM = "roles";
+
     @Value("${app.jwt-secret}")
     private String jwtSecret;
 
     @Value("${app.jwt-expiration-milliseconds}")
     private int jwtExpirationInMs;
+
+    @Value("${app.jwt-claims-cache.enabled:false}")
+    private boolean claimsCacheEnabled;
+
+    @Value("${app.jwt-claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
+    // verified claims keyed by the SHA-256 digest of the token, each entry expiring at the token's exp
+    private Cache<String, Claims> claimsCache;
+
+    @PostConstruct
+    public void initClaimsCache() {
+        if (claimsCacheEnabled) {
+            claimsCache = Caffeine.newBuilder()
+                    .maximumSize(claimsCacheMaxSize)
+                    .expireAfter(new ExpireAtTokenExpiration())
+                    .build();
+        }
+    }
+
+    @Timed(value = JWT_TIMER, extraTags = {"operation", "sign"})
     public String generateToken(Authentication authentication) {
 
         String username = authentication.getName();
         Date currentDate = new Date();
         Date expireDate = new Date(currentDate.getTime() + jwtExpirationInMs);
 
+        // sign the authorities into the token so that stateless mode needs no user lookup
+        List<String> roles = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+
         return Jwts.builder()
                 .setSubject(username)
+                .claim(ROLES_CLAIM, roles)
                 .setIssuedAt(new Date())
                 .setExpiration(expireDate)
                 .signWith(SignatureAlgorithm.HS512, jwtSecret)
                 .compact();
     }
 
-    public String getUsernameFromJwt(String token) {
+    // verifies the signature once and returns the claims, served from the cache when enabled
+    @Timed(value = JWT_TIMER, extraTags = {"operation", "parse"})
+    public Claims getClaimsFromJwt(String token) {
+
+        if (claimsCache == null) {
+            return parseClaims(token);
+        }
+
+        String key = digest(token);
+        Claims claims = claimsCache.getIfPresent(key);
+        if (claims == null || isExpired(claims)) {
+            claims = parseClaims(token);
+            claimsCache.put(key, claims);
+        }
+        return claims;
+    }
+
+    // builds the principal straight from the claims, or returns null for tokens issued without roles
+    public UserDetails getUserDetailsFromClaims(Claims claims) {
 
-        Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof Collection<?> roleNames)) {
+            return null;
+        }
 
-        return claims.getSubject();
+        List<GrantedAuthority> authorities = roleNames.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return new User(claims.getSubject(), "", authorities);
+    }
+
+    public String getUsernameFromJwt(String token) {
+
+        return getClaimsFromJwt(token).getSubject();
     }
 
     public boolean validateToken(String token) {
+
+        getClaimsFromJwt(token);
+        return true;
+    }
+
+    private Claims parseClaims(String token) {
         try {
-            Jwts.parser()
+            return Jwts.parser()
                     .setSigningKey(jwtSecret)
-                    .parseClaimsJws(token);
-            return true;
+                    .parseClaimsJws(token)
+                    .getBody();
         } catch (SignatureException ex) {
             throw new BlogApiException(HttpStatus.BAD_REQUEST, "Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -59,4 +138,41 @@ public class JwtTokenProvider {
             throw new BlogApiException(HttpStatus.BAD_REQUEST, "JWT claims string is empty");
         }
     }
+
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class ExpireAtTokenExpiration implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return Long.MAX_VALUE;
+            }
+            long remainingMs = expiration.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
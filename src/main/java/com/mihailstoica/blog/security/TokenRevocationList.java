@@ -0,0 +1,74 @@
+package com.mihailstoica.blog.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+// tokens issued before a user (or role) changed must not be trusted for their embedded authorities;
+// entries only need to outlive the tokens themselves, so they expire after the JWT lifetime
+@Component
+public class TokenRevocationList {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private final Cache<String, Long> revokedBefore;
+
+    private final long maxSize;
+
+    private volatile long allRevokedBefore;
+
+    public TokenRevocationList(@Value("${app.jwt-expiration-milliseconds}") long jwtExpirationInMs,
+                               @Value("${app.jwt-revocation.max-size:100000}") long maxSize) {
+        // no maximumSize: an evicted entry would silently trust the subject's revoked tokens again
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(jwtExpirationInMs))
+                .build();
+        this.maxSize = maxSize;
+    }
+
+    public void revoke(String subject) {
+        if (revokedBefore.estimatedSize() >= maxSize) {
+            // the size counts expired entries until they are cleaned up
+            revokedBefore.cleanUp();
+            if (revokedBefore.estimatedSize() >= maxSize) {
+                revokeAllOnOverflow();
+                return;
+            }
+        }
+        revokedBefore.put(subject, System.currentTimeMillis());
+    }
+
+    // fail closed: every token issued until now is revoked, which covers all the entries dropped here and
+    // this subject's; the cutoff is taken again after the drop for revocations that raced with it
+    private void revokeAllOnOverflow() {
+        log.warn("More than {} subjects with revoked tokens, revoking every token issued so far", maxSize);
+        revokeAll();
+        revokedBefore.invalidateAll();
+        revokeAll();
+    }
+
+    public void revokeAll() {
+        allRevokedBefore = System.currentTimeMillis();
+    }
+
+    public boolean isRevoked(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        if (issuedAt == null) {
+            return true;
+        }
+        // iat is truncated to seconds, so a token issued in the same second as the change counts as revoked
+        long issued = issuedAt.getTime();
+        if (issued <= allRevokedBefore) {
+            return true;
+        }
+        Long subjectRevokedBefore = revokedBefore.getIfPresent(claims.getSubject());
+        return subjectRevokedBefore != null && issued <= subjectRevokedBefore;
+    }
+}
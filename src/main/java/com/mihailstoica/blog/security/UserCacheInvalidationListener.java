@@ -0,0 +1,83 @@
+package com.mihailstoica.blog.security;
+
+import com.mihailstoica.blog.entity.Role;
+import com.mihailstoica.blog.entity.User;
+import com.mihailstoica.blog.event.RoleChangedEvent;
+import com.mihailstoica.blog.event.UserChangedEvent;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// evicts cached UserDetails, and revokes the authorities signed into already issued tokens, when a user,
+// its roles or a role changes. Changes are collected as events and applied after the commit: evicting
+// earlier would let a concurrent login cache the old state again, and a rollback needs no eviction at all
+@Component
+public class UserCacheInvalidationListener
+        implements PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private final CaffeineUserCache userCache;
+
+    private final TokenRevocationList revocationList;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserCacheInvalidationListener(CaffeineUserCache userCache, TokenRevocationList revocationList,
+                                         ApplicationEventPublisher eventPublisher) {
+        this.userCache = userCache;
+        this.revocationList = revocationList;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // JPA callbacks, for changes to the users and roles rows themselves
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof User user) {
+            eventPublisher.publishEvent(new UserChangedEvent(user.getEmail(), user.getUsername()));
+        } else if (entity instanceof Role role) {
+            eventPublisher.publishEvent(new RoleChangedEvent(role.getId()));
+        }
+    }
+
+    // Hibernate collection events (registered in HibernateListenerConfig): granting or revoking a role only
+    // writes user_roles and leaves the users row alone, so the JPA callbacks above never see it. Replacing
+    // the whole set is a remove of the old collection followed by the recreate of the new one.
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        onCollectionChange(event);
+    }
+
+    private void onCollectionChange(AbstractCollectionEvent event) {
+        if (event.getAffectedOwnerOrNull() instanceof User user) {
+            onChange(user);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        // the token subject is the email, but evict the username too in case it was used to log in
+        userCache.removeUserFromCache(event.email());
+        userCache.removeUserFromCache(event.username());
+        revocationList.revoke(event.email());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoleChanged(RoleChangedEvent event) {
+        // a role is shared by many users, drop everything
+        userCache.removeAllUsersFromCache();
+        revocationList.revokeAll();
+    }
+}
@@ -1,14 +1,25 @@
 package com.mihailstoica.blog.service;
 
+import com.mihailstoica.blog.payload.CommentBatchResponse;
 import com.mihailstoica.blog.payload.CommentDto;
 import com.mihailstoica.blog.payload.CommentResponse;
+import com.mihailstoica.blog.payload.CommentSearchHit;
+import com.mihailstoica.blog.payload.SearchResponse;
+
+import java.util.List;
 
 public interface CommentService {
 
     CommentDto createComment(Long postId, CommentDto commentDto);
 
+    CommentBatchResponse createComments(Long postId, List<CommentDto> commentDtos);
+
     CommentResponse getAllCommentsByPostId(Long postId, int pageNo, int pageSize, String sortBy, String sortDir);
 
+    CommentResponse getCommentsByPostIdAfter(Long postId, String after, int limit, String sortBy, String sortDir);
+
+    SearchResponse<CommentSearchHit> searchCommentsByPostId(Long postId, String query, String after, int limit);
+
     CommentDto getCommentById(Long postId, Long commentId);
 
     CommentDto updateComment(Long postId, Long commentId, CommentDto commentRequest);
@@ -1,7 +1,15 @@
 package com.mihailstoica.blog.service;
 
 import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.payload.PostImportResponse;
 import com.mihailstoica.blog.payload.PostResponse;
+import com.mihailstoica.blog.payload.PostSearchHit;
+import com.mihailstoica.blog.payload.PostSummaryResponse;
+import com.mihailstoica.blog.payload.SearchResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface PostService {
 
@@ -9,9 +17,19 @@ public interface PostService {
 
     PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir);
 
+    PostResponse getPostsAfter(String after, int limit, String sortBy, String sortDir);
+
+    PostSummaryResponse getPostSummaries(int pageNo, int pageSize, String sortBy, String sortDir, int excerptLength);
+
+    SearchResponse<PostSearchHit> searchPosts(String query, String after, int limit);
+
     PostDto getPostById(Long id);
 
     PostDto updatePost(PostDto postDto, Long id);
 
     void deletePostById(Long id);
+
+    void exportPosts(OutputStream outputStream) throws IOException;
+
+    PostImportResponse importPosts(InputStream inputStream) throws IOException;
 }
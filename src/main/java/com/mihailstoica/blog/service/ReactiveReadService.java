@@ -0,0 +1,15 @@
+package com.mihailstoica.blog.service;
+
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.payload.PostDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveReadService {
+
+    Flux<PostDto> getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir);
+
+    Mono<PostDto> getPostById(Long id);
+
+    Flux<CommentDto> getAllCommentsByPostId(Long postId, int pageNo, int pageSize, String sortBy, String sortDir);
+}
@@ -2,23 +2,51 @@ package com.mihailstoica.blog.service.impl;
 
 import com.mihailstoica.blog.entity.Comment;
 import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.event.CommentCreatedEvent;
 import com.mihailstoica.blog.exception.BlogApiException;
 import com.mihailstoica.blog.exception.ResourceNotFoundException;
+import com.mihailstoica.blog.payload.CommentBatchResponse;
+import com.mihailstoica.blog.payload.CommentBatchResult;
 import com.mihailstoica.blog.payload.CommentDto;
 import com.mihailstoica.blog.payload.CommentResponse;
+import com.mihailstoica.blog.payload.CommentSearchHit;
+import com.mihailstoica.blog.payload.SearchResponse;
 import com.mihailstoica.blog.repository.CommentRepository;
 import com.mihailstoica.blog.repository.PostRepository;
 import com.mihailstoica.blog.service.CommentService;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import com.mihailstoica.blog.utils.PageLimits;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mihailstoica.blog.config.CacheConfig.POSTS_CACHE;
+import static com.mihailstoica.blog.config.CacheConfig.POST_PAGES_CACHE;
+import static com.mihailstoica.blog.config.MetricsConfig.SERVICE_TIMER;
+import static com.mihailstoica.blog.utils.Constants.SEARCH_RANK;
 
+@Timed(SERVICE_TIMER)
 @Service
 public class CommentServiceImpl implements CommentService {
 
@@ -26,9 +54,29 @@ public class CommentServiceImpl implements CommentService {
 
     private final PostRepository postRepository;
 
-    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository) {
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // comments persisted between two flush/clear cycles of a batch import
+    @Value("${app.comment-batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${app.comment-batch.max-items:10000}")
+    private int batchMaxItems;
+
+    @Value("${app.soft-delete.enabled:false}")
+    private boolean softDelete;
+
+    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository,
+                              Validator validator, ApplicationEventPublisher eventPublisher) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
     }
 
     private Comment mapToEntity(CommentDto commentDto) {
@@ -41,32 +89,133 @@ public class CommentServiceImpl implements CommentService {
         return comment;
     }
 
-    private CommentDto mapToDTO(Comment comment) {
+    // package-private for the mapping benchmark
+    CommentDto mapToDTO(Comment comment) {
 
         CommentDto commentDto = new CommentDto();
         commentDto.setId(comment.getId());
         commentDto.setName(comment.getName());
         commentDto.setEmail(comment.getEmail());
         commentDto.setBody(comment.getBody());
+        commentDto.setVersion(comment.getVersion());
+        commentDto.setUpdatedAt(comment.getUpdatedAt());
         return commentDto;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = POSTS_CACHE, key = "#postId"),
+            @CacheEvict(cacheNames = POST_PAGES_CACHE, allEntries = true)
+    })
+    @Transactional
     @Override
     public CommentDto createComment(Long postId, CommentDto commentDto) {
 
         Comment comment = mapToEntity(commentDto);
 
-        // retrieve post entity by id
-        Post post = postRepository.findById(postId).orElseThrow(
-                () -> new ResourceNotFoundException("Post", "id", postId));
-
-        // set post to comment entity
-        comment.setPost(post);
+        // the counter update is the existence check; attach a lazy reference instead of loading the whole post
+        if (postRepository.addComments(postId, 1, Instant.now()) == 0) {
+            throw new ResourceNotFoundException("Post", "id", postId);
+        }
+        comment.setPost(postRepository.getReferenceById(postId));
 
         Comment newComment = commentRepository.save(comment);
-        return mapToDTO(newComment);
+        CommentDto created = mapToDTO(newComment);
+
+        // delivered to the post's comment stream subscribers once the transaction commits
+        eventPublisher.publishEvent(new CommentCreatedEvent(postId, created));
+        return created;
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = POSTS_CACHE, key = "#postId"),
+            @CacheEvict(cacheNames = POST_PAGES_CACHE, allEntries = true)
+    })
+    @Transactional
+    @Override
+    public CommentBatchResponse createComments(Long postId, List<CommentDto> commentDtos) {
+
+        if (commentDtos.size() > batchMaxItems) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST,
+                    "A batch may contain at most " + batchMaxItems + " comments");
+        }
+        if (!postRepository.existsById(postId)) {
+            throw new ResourceNotFoundException("Post", "id", postId);
+        }
+
+        List<CommentBatchResult> results = new ArrayList<>(commentDtos.size());
+        List<Comment> chunk = new ArrayList<>(batchChunkSize);
+        List<CommentBatchResult> chunkResults = new ArrayList<>(batchChunkSize);
+        Post post = postRepository.getReferenceById(postId);
+        int created = 0;
+
+        for (int index = 0; index < commentDtos.size(); index++) {
+            CommentDto commentDto = commentDtos.get(index);
+
+            // a null element of the JSON array cannot be validated, it is an invalid item like any other
+            if (commentDto == null) {
+                results.add(new CommentBatchResult(index, null, CommentBatchResult.INVALID,
+                        Map.of("comment", "must not be null")));
+                continue;
+            }
+
+            Set<ConstraintViolation<CommentDto>> violations = validator.validate(commentDto);
+            if (!violations.isEmpty()) {
+                Map<String, String> errors = new HashMap<>();
+                violations.forEach(violation ->
+                        errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+                results.add(new CommentBatchResult(index, null, CommentBatchResult.INVALID, errors));
+                continue;
+            }
+
+            Comment comment = mapToEntity(commentDto);
+            // ids are always generated, never taken from the import
+            comment.setId(null);
+            comment.setPost(post);
+            chunk.add(comment);
+
+            CommentBatchResult result = new CommentBatchResult(index, null, CommentBatchResult.CREATED, null);
+            chunkResults.add(result);
+            results.add(result);
+
+            if (chunk.size() == batchChunkSize) {
+                created += flushChunk(postId, chunk, chunkResults);
+                // the persistence context was cleared, take a fresh reference
+                post = postRepository.getReferenceById(postId);
+            }
+        }
+        created += flushChunk(postId, chunk, chunkResults);
+
+        if (created > 0) {
+            postRepository.addComments(postId, created, Instant.now());
+        }
+
+        return new CommentBatchResponse(created, results.size() - created, results);
     }
 
+    // writes the chunk as JDBC batches and clears the persistence context to keep memory flat
+    private int flushChunk(Long postId, List<Comment> chunk, List<CommentBatchResult> chunkResults) {
+
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        List<Comment> saved = commentRepository.saveAll(chunk);
+        entityManager.flush();
+        entityManager.clear();
+
+        for (int i = 0; i < saved.size(); i++) {
+            chunkResults.get(i).setId(saved.get(i).getId());
+            // like a single comment, each one reaches the stream subscribers only after the commit
+            eventPublisher.publishEvent(new CommentCreatedEvent(postId, mapToDTO(saved.get(i))));
+        }
+
+        int size = saved.size();
+        chunk.clear();
+        chunkResults.clear();
+        return size;
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public CommentResponse getAllCommentsByPostId(Long postId, int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.DESC.name()) ? Sort.by(sortBy).descending()
@@ -75,15 +224,11 @@ public class CommentServiceImpl implements CommentService {
         // create Pageable instance
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
 
-        Page<Comment> comments = commentRepository.findAll(pageable);
+        Page<Comment> comments = commentRepository.findByPostId(postId, pageable);
 
         // get content from page object
-        List<Comment> commentList = comments.getContent()
+        List<CommentDto> content = comments.getContent()
                 .stream()
-                .filter(comment -> Objects.equals(comment.getPost().getId(), postId))
-                .toList();
-
-        List<CommentDto> content = commentList.stream()
                 .map(this::mapToDTO)
                 .toList();
 
@@ -98,6 +243,83 @@ public class CommentServiceImpl implements CommentService {
         return response;
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public CommentResponse getCommentsByPostIdAfter(Long postId, String after, int limit, String sortBy,
+                                                    String sortDir) {
+
+        int pageLimit = PageLimits.clamp(limit);
+
+        // a cursor keeps the sort of the page it was issued for
+        KeysetCursor cursor = StringUtils.hasText(after) ? KeysetCursor.decode(after) : null;
+        String sortProperty = cursor != null ? cursor.getSortBy() : sortBy;
+        Sort.Direction direction = cursor != null ? cursor.getDirection()
+                : Sort.Direction.fromOptionalString(sortDir).orElse(Sort.Direction.ASC);
+
+        List<Comment> commentList = commentRepository.findNextCommentsByPostId(
+                postId, sortProperty, direction, cursor, pageLimit);
+        boolean last = commentList.size() <= pageLimit;
+        if (!last) {
+            commentList = commentList.subList(0, pageLimit);
+        }
+
+        List<CommentDto> content = commentList.stream()
+                .map(this::mapToDTO)
+                .toList();
+
+        CommentResponse response = new CommentResponse();
+        response.setContent(content);
+        response.setPageNo(0);
+        response.setPageSize(pageLimit);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setLast(last);
+        if (!last) {
+            Comment lastComment = commentList.get(commentList.size() - 1);
+            response.setNextCursor(
+                    KeysetCursor.after(lastComment, lastComment.getId(), sortProperty, direction).encode());
+        }
+
+        return response;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public SearchResponse<CommentSearchHit> searchCommentsByPostId(Long postId, String query, String after,
+                                                                   int limit) {
+
+        if (!StringUtils.hasText(query)) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Search query must not be empty");
+        }
+        int pageLimit = PageLimits.clamp(limit);
+        KeysetCursor cursor = StringUtils.hasText(after) ? KeysetCursor.decode(after, SEARCH_RANK) : null;
+
+        List<CommentSearchHit> hits = commentRepository.searchCommentsByPostId(postId, query, cursor, pageLimit);
+
+        // only an empty first page needs to tell a missing post from a post without matches
+        if (hits.isEmpty() && cursor == null && !postRepository.existsById(postId)) {
+            throw new ResourceNotFoundException("Post", "id", postId);
+        }
+
+        boolean last = hits.size() <= pageLimit;
+        if (!last) {
+            hits = hits.subList(0, pageLimit);
+        }
+
+        SearchResponse<CommentSearchHit> response = new SearchResponse<>();
+        response.setContent(hits);
+        response.setPageSize(pageLimit);
+        response.setLast(last);
+        if (!last) {
+            CommentSearchHit lastHit = hits.get(hits.size() - 1);
+            response.setNextCursor(
+                    KeysetCursor.after(lastHit, lastHit.getId(), SEARCH_RANK, Sort.Direction.DESC).encode());
+        }
+
+        return response;
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public CommentDto getCommentById(Long postId, Long commentId) {
 
@@ -105,6 +327,7 @@ public class CommentServiceImpl implements CommentService {
         return mapToDTO(comment);
     }
 
+    @Transactional
     @Override
     public CommentDto updateComment(Long postId, Long commentId, CommentDto commentRequest) {
 
@@ -117,24 +340,39 @@ public class CommentServiceImpl implements CommentService {
         return mapToDTO(updatedComment);
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = POSTS_CACHE, key = "#postId"),
+            @CacheEvict(cacheNames = POST_PAGES_CACHE, allEntries = true)
+    })
+    @Transactional
     @Override
     public void deleteComment(Long postId, Long commentId) {
 
-        Comment comment = retrieveCommentOfPost(postId, commentId);
-        commentRepository.delete(comment);
+        // soft delete only marks the row, the purge job removes it later
+        int deleted = softDelete ? commentRepository.softDeleteByIdAndPostId(commentId, postId, Instant.now())
+                : commentRepository.deleteByIdAndPostId(commentId, postId);
+        if (deleted == 0) {
+            throw commentLookupFailure(postId, commentId);
+        }
+        // lastCommentAt keeps the time of the latest comment added
+        postRepository.removeComment(postId, Instant.now());
     }
 
     private Comment retrieveCommentOfPost(Long postId, Long commentId) {
-        Post post = postRepository.findById(postId).orElseThrow(
-                () -> new ResourceNotFoundException("Post", "id", postId));
 
-        Comment comment = commentRepository.findById(commentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
+        return commentRepository.findByIdAndPostId(commentId, postId)
+                .orElseThrow(() -> commentLookupFailure(postId, commentId));
+    }
+
+    // only runs on the error path: tell apart a missing post, a missing comment and a comment of another post
+    private RuntimeException commentLookupFailure(Long postId, Long commentId) {
 
-        if (!post.getId().equals(comment.getPost().getId())) {
-            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
+        if (!postRepository.existsById(postId)) {
+            return new ResourceNotFoundException("Post", "id", postId);
         }
-
-        return comment;
+        if (!commentRepository.existsById(commentId)) {
+            return new ResourceNotFoundException("Comment", "id", commentId);
+        }
+        return new BlogApiException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
     }
 }
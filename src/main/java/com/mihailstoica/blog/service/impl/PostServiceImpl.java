@@ -1,26 +1,120 @@
 package com.mihailstoica.blog.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mihailstoica.blog.config.ReadFromPrimary;
 import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.event.PostDeletedEvent;
+import com.mihailstoica.blog.event.PostSavedEvent;
+import com.mihailstoica.blog.exception.BlogApiException;
 import com.mihailstoica.blog.exception.ResourceNotFoundException;
 import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.payload.PostExcerpt;
+import com.mihailstoica.blog.payload.PostImportResponse;
 import com.mihailstoica.blog.payload.PostResponse;
+import com.mihailstoica.blog.payload.PostSearchHit;
+import com.mihailstoica.blog.payload.PostSummary;
+import com.mihailstoica.blog.payload.PostSummaryDto;
+import com.mihailstoica.blog.payload.PostSummaryResponse;
+import com.mihailstoica.blog.payload.SearchResponse;
+import com.mihailstoica.blog.repository.CommentRepository;
 import com.mihailstoica.blog.repository.PostRepository;
+import com.mihailstoica.blog.search.PostSearchIndex;
 import com.mihailstoica.blog.service.PostService;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import com.mihailstoica.blog.utils.PageLimits;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.mihailstoica.blog.config.CacheConfig.POSTS_CACHE;
+import static com.mihailstoica.blog.config.CacheConfig.POST_PAGES_CACHE;
+import static com.mihailstoica.blog.config.MetricsConfig.SERVICE_TIMER;
+import static com.mihailstoica.blog.utils.Constants.MAX_EXCERPT_LENGTH;
+import static com.mihailstoica.blog.utils.Constants.SEARCH_RANK;
+
+// class, method and exception tags; see MetricsConfig
+@Timed(SERVICE_TIMER)
 @Service
 public class PostServiceImpl implements PostService {
 
+    // number of import errors reported back, the rest are only counted
+    private static final int MAX_REPORTED_IMPORT_ERRORS = 100;
+
     private final PostRepository postRepository;
 
-    public PostServiceImpl(PostRepository postRepository) {
+    private final CommentRepository commentRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // only present with app.search.mode=index
+    private final ObjectProvider<PostSearchIndex> postSearchIndex;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // posts persisted and committed together by the streaming import
+    @Value("${app.post-import.chunk-size:500}")
+    private int importChunkSize;
+
+    @Value("${app.soft-delete.enabled:false}")
+    private boolean softDelete;
+
+    public PostServiceImpl(PostRepository postRepository, CommentRepository commentRepository,
+                           ObjectMapper objectMapper, Validator validator,
+                           PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                           ObjectProvider<PostSearchIndex> postSearchIndex) {
         this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.postSearchIndex = postSearchIndex;
     }
 
     // convert DTO to Entity
@@ -33,16 +127,34 @@ public class PostServiceImpl implements PostService {
         return post;
     }
 
-    // convert Entity into DTO
-    private PostDto mapToDTO(Post post) {
+    // convert Entity into DTO; package-private for the mapping benchmark
+    PostDto mapToDTO(Post post) {
         
         PostDto postDto = new PostDto();
         postDto.setId(post.getId());
         postDto.setTitle(post.getTitle());
         postDto.setDescription(post.getDescription());
         postDto.setContent(post.getContent());
+        postDto.setCommentCount(post.getCommentCount());
+        postDto.setLastCommentAt(post.getLastCommentAt());
+        postDto.setVersion(post.getVersion());
+        postDto.setUpdatedAt(post.getUpdatedAt());
         return postDto;
     }
+
+    private PostSavedEvent savedEvent(Post post) {
+        return new PostSavedEvent(post.getId(), post.getTitle(), post.getDescription(), post.getContent());
+    }
+
+    // convert projection into summary DTO
+    private PostSummaryDto mapToSummaryDTO(PostSummary summary) {
+
+        String excerpt = summary instanceof PostExcerpt postExcerpt ? postExcerpt.getExcerpt() : null;
+        return new PostSummaryDto(summary.getId(), summary.getTitle(), summary.getDescription(),
+                summary.getCommentCount(), summary.getLastCommentAt(), excerpt);
+    }
+
+    @CacheEvict(cacheNames = POST_PAGES_CACHE, allEntries = true)
     @Override
     public PostDto createPost(PostDto postDto) {
 
@@ -50,10 +162,15 @@ public class PostServiceImpl implements PostService {
         Post post = mapToEntity(postDto);
 
         Post newPost = postRepository.save(post);
+        eventPublisher.publishEvent(savedEvent(newPost));
 
         // convert entity to DTO & return
         return mapToDTO(newPost);
     }
+
+    @Cacheable(cacheNames = POST_PAGES_CACHE)
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
     @Override
     public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir) {
 
@@ -83,6 +200,130 @@ public class PostServiceImpl implements PostService {
         return response;
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public PostResponse getPostsAfter(String after, int limit, String sortBy, String sortDir) {
+
+        int pageLimit = PageLimits.clamp(limit);
+
+        // a cursor keeps the sort of the page it was issued for
+        KeysetCursor cursor = StringUtils.hasText(after) ? KeysetCursor.decode(after) : null;
+        String sortProperty = cursor != null ? cursor.getSortBy() : sortBy;
+        Sort.Direction direction = cursor != null ? cursor.getDirection()
+                : Sort.Direction.fromOptionalString(sortDir).orElse(Sort.Direction.ASC);
+
+        List<Post> postList = postRepository.findNextPosts(sortProperty, direction, cursor, pageLimit);
+        boolean last = postList.size() <= pageLimit;
+        if (!last) {
+            postList = postList.subList(0, pageLimit);
+        }
+
+        List<PostDto> content = postList.stream()
+                .map(this::mapToDTO)
+                .toList();
+
+        PostResponse response = new PostResponse();
+        response.setContent(content);
+        response.setPageNo(0);
+        response.setPageSize(pageLimit);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setLast(last);
+        if (!last) {
+            Post lastPost = postList.get(postList.size() - 1);
+            response.setNextCursor(KeysetCursor.after(lastPost, lastPost.getId(), sortProperty, direction).encode());
+        }
+
+        return response;
+    }
+
+    @Cacheable(cacheNames = POST_PAGES_CACHE,
+            key = "{'summary', #pageNo, #pageSize, #sortBy, #sortDir, #excerptLength}")
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
+    @Override
+    public PostSummaryResponse getPostSummaries(int pageNo, int pageSize, String sortBy, String sortDir,
+                                                int excerptLength) {
+
+        Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.DESC.name()) ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
+
+        // only id, title, description (and the excerpt) are selected, content never leaves the database
+        int length = Math.min(excerptLength, MAX_EXCERPT_LENGTH);
+        Page<? extends PostSummary> summaries = length > 0 ? postRepository.findAllExcerpts(length, pageable)
+                : postRepository.findAllProjectedBy(pageable);
+
+        List<PostSummaryDto> content = summaries.getContent().stream()
+                .map(this::mapToSummaryDTO)
+                .toList();
+
+        PostSummaryResponse response = new PostSummaryResponse();
+        response.setContent(content);
+        response.setPageNo(summaries.getNumber());
+        response.setPageSize(summaries.getSize());
+        response.setTotalElements(summaries.getTotalElements());
+        response.setTotalPages(summaries.getTotalPages());
+        response.setLast(summaries.isLast());
+
+        return response;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public SearchResponse<PostSearchHit> searchPosts(String query, String after, int limit) {
+
+        if (!StringUtils.hasText(query)) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Search query must not be empty");
+        }
+        int pageLimit = PageLimits.clamp(limit);
+        KeysetCursor cursor = StringUtils.hasText(after) ? KeysetCursor.decode(after, SEARCH_RANK) : null;
+
+        PostSearchIndex searchIndex = postSearchIndex.getIfAvailable();
+        List<PostSearchHit> hits = searchIndex != null ? searchIndex(searchIndex, query, cursor, pageLimit)
+                : postRepository.searchPosts(query, cursor, pageLimit);
+        boolean last = hits.size() <= pageLimit;
+        if (!last) {
+            hits = hits.subList(0, pageLimit);
+        }
+
+        SearchResponse<PostSearchHit> response = new SearchResponse<>();
+        response.setContent(hits);
+        response.setPageSize(pageLimit);
+        response.setLast(last);
+        if (!last) {
+            PostSearchHit lastHit = hits.get(hits.size() - 1);
+            response.setNextCursor(
+                    KeysetCursor.after(lastHit, lastHit.getId(), SEARCH_RANK, Sort.Direction.DESC).encode());
+        }
+
+        return response;
+    }
+
+    // the index only yields ids (rank 0, in id order); one primary key lookup loads the page
+    private List<PostSearchHit> searchIndex(PostSearchIndex searchIndex, String query, KeysetCursor cursor,
+                                            int limit) {
+
+        long[] ids = searchIndex.search(query, cursor != null ? cursor.getId() : 0L, limit + 1);
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        Map<Long, PostSummary> summaries = postRepository.findSummariesByIdIn(Arrays.stream(ids).boxed().toList())
+                .stream()
+                .collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+
+        return Arrays.stream(ids)
+                .mapToObj(summaries::get)
+                .filter(Objects::nonNull)
+                .map(summary -> new PostSearchHit(summary.getId(), summary.getTitle(), summary.getDescription(), 0f))
+                .toList();
+    }
+
+    @Cacheable(cacheNames = POSTS_CACHE, key = "#id")
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
     @Override
     public PostDto getPostById(Long id) {
 
@@ -90,6 +331,11 @@ public class PostServiceImpl implements PostService {
         return mapToDTO(post);
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = POSTS_CACHE, key = "#id"),
+            @CacheEvict(cacheNames = POST_PAGES_CACHE, allEntries = true)
+    })
+    @Transactional
     @Override
     public PostDto updatePost(PostDto postDto, Long id) {
 
@@ -100,14 +346,125 @@ public class PostServiceImpl implements PostService {
         post.setDescription(postDto.getDescription());
 
         Post updatedPost = postRepository.save(post);
+        eventPublisher.publishEvent(savedEvent(updatedPost));
 
         return mapToDTO(updatedPost);
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = POSTS_CACHE, key = "#id"),
+            @CacheEvict(cacheNames = POST_PAGES_CACHE, allEntries = true)
+    })
+    @Transactional
     @Override
     public void deletePostById(Long id) {
 
-        Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
-        postRepository.delete(post);
+        // soft delete: one row update, the purge job removes the post and its comments later
+        if (softDelete) {
+            if (postRepository.softDeletePostById(id, Instant.now()) == 0) {
+                throw new ResourceNotFoundException("Post", "id", id);
+            }
+            eventPublisher.publishEvent(new PostDeletedEvent(id));
+            return;
+        }
+
+        // comments first for the foreign key, then the post; the row count of the latter is the existence check
+        commentRepository.deleteByPostId(id);
+        if (postRepository.deletePostById(id) == 0) {
+            throw new ResourceNotFoundException("Post", "id", id);
+        }
+        eventPublisher.publishEvent(new PostDeletedEvent(id));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void exportPosts(OutputStream outputStream) throws IOException {
+
+        ObjectWriter writer = objectMapper.writerFor(PostDto.class);
+
+        try (Stream<Post> posts = postRepository.streamAll()) {
+            Iterator<Post> iterator = posts.iterator();
+            while (iterator.hasNext()) {
+                Post post = iterator.next();
+                outputStream.write(writer.writeValueAsBytes(mapToDTO(post)));
+                outputStream.write('\n');
+
+                // the persistence context would otherwise keep every exported post
+                entityManager.detach(post);
+            }
+        }
+        outputStream.flush();
+    }
+
+    @CacheEvict(cacheNames = POST_PAGES_CACHE, allEntries = true)
+    @Override
+    public PostImportResponse importPosts(InputStream inputStream) throws IOException {
+
+        ObjectReader reader = objectMapper.readerFor(PostDto.class);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        List<Post> chunk = new ArrayList<>(importChunkSize);
+        List<String> errors = new ArrayList<>();
+        long imported = 0;
+        long failed = 0;
+        long lineNumber = 0;
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (!StringUtils.hasText(line)) {
+                continue;
+            }
+
+            String error;
+            try {
+                PostDto postDto = reader.readValue(line);
+                // a "null" line is valid JSON but has nothing to validate
+                if (postDto == null) {
+                    error = "not a post object";
+                } else {
+                    Set<ConstraintViolation<PostDto>> violations = validator.validate(postDto);
+                    if (violations.isEmpty()) {
+                        // ids are always assigned by this database
+                        chunk.add(mapToEntity(postDto));
+                        if (chunk.size() >= importChunkSize) {
+                            imported += saveChunk(chunk);
+                        }
+                        continue;
+                    }
+                    error = violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .collect(Collectors.joining(", "));
+                }
+            } catch (JsonProcessingException exception) {
+                error = "malformed JSON";
+            }
+
+            failed++;
+            if (errors.size() < MAX_REPORTED_IMPORT_ERRORS) {
+                errors.add("line " + lineNumber + ": " + error);
+            }
+        }
+        imported += saveChunk(chunk);
+
+        return new PostImportResponse(imported, failed, errors);
+    }
+
+    // each chunk commits on its own, so a failure part way keeps the chunks already imported
+    private int saveChunk(List<Post> chunk) {
+
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            postRepository.saveAll(chunk).forEach(post -> eventPublisher.publishEvent(savedEvent(post)));
+            entityManager.flush();
+            entityManager.clear();
+        });
+
+        int saved = chunk.size();
+        chunk.clear();
+        return saved;
     }
 }
@@ -0,0 +1,87 @@
+package com.mihailstoica.blog.service.impl;
+
+import com.mihailstoica.blog.exception.ResourceNotFoundException;
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.repository.reactive.CommentRow;
+import com.mihailstoica.blog.repository.reactive.PostRow;
+import com.mihailstoica.blog.repository.reactive.ReactiveCommentRepository;
+import com.mihailstoica.blog.repository.reactive.ReactivePostRepository;
+import com.mihailstoica.blog.service.ReactiveReadService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// the read side of PostService and CommentService over R2DBC: rows are mapped and emitted as they arrive,
+// at the pace the client consumes them, without holding a thread per request
+@Service
+public class ReactiveReadServiceImpl implements ReactiveReadService {
+
+    private final ReactivePostRepository postRepository;
+
+    private final ReactiveCommentRepository commentRepository;
+
+    public ReactiveReadServiceImpl(ReactivePostRepository postRepository,
+                                   ReactiveCommentRepository commentRepository) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+    }
+
+    private PostDto mapToDTO(PostRow post) {
+
+        PostDto postDto = new PostDto();
+        postDto.setId(post.getId());
+        postDto.setTitle(post.getTitle());
+        postDto.setDescription(post.getDescription());
+        postDto.setContent(post.getContent());
+        postDto.setCommentCount(post.getCommentCount());
+        postDto.setLastCommentAt(post.getLastCommentAt());
+        return postDto;
+    }
+
+    private CommentDto mapToDTO(CommentRow comment) {
+
+        CommentDto commentDto = new CommentDto();
+        commentDto.setId(comment.getId());
+        commentDto.setName(comment.getName());
+        commentDto.setEmail(comment.getEmail());
+        commentDto.setBody(comment.getBody());
+        return commentDto;
+    }
+
+    private static Pageable pageable(int pageNo, int pageSize, String sortBy, String sortDir) {
+
+        Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.DESC.name()) ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+        return PageRequest.of(pageNo, pageSize, sort);
+    }
+
+    @Override
+    public Flux<PostDto> getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir) {
+
+        return postRepository.findByDeletedAtIsNull(pageable(pageNo, pageSize, sortBy, sortDir))
+                .map(this::mapToDTO);
+    }
+
+    @Override
+    public Mono<PostDto> getPostById(Long id) {
+
+        return postRepository.findByIdAndDeletedAtIsNull(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Post", "id", id)))
+                .map(this::mapToDTO);
+    }
+
+    @Override
+    public Flux<CommentDto> getAllCommentsByPostId(Long postId, int pageNo, int pageSize, String sortBy,
+                                                   String sortDir) {
+
+        Pageable pageable = pageable(pageNo, pageSize, sortBy, sortDir);
+        return postRepository.existsByIdAndDeletedAtIsNull(postId)
+                .flatMapMany(exists -> exists
+                        ? commentRepository.findByPostIdAndDeletedAtIsNull(postId, pageable).map(this::mapToDTO)
+                        : Flux.error(new ResourceNotFoundException("Post", "id", postId)));
+    }
+}
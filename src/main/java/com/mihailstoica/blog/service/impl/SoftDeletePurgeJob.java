@@ -0,0 +1,78 @@
+package com.mihailstoica.blog.service.impl;
+
+import com.mihailstoica.blog.repository.CommentRepository;
+import com.mihailstoica.blog.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.IntUnaryOperator;
+
+// hard-deletes soft-deleted rows older than the retention, in small batches with one transaction each so
+// that locks stay short and the dead tuples left for vacuum are spread over the run
+@Component
+@ConditionalOnProperty(name = "app.soft-delete.enabled", havingValue = "true")
+public class SoftDeletePurgeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftDeletePurgeJob.class);
+
+    private final PostRepository postRepository;
+
+    private final CommentRepository commentRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.soft-delete.retention:PT24H}")
+    private Duration retention;
+
+    @Value("${app.soft-delete.purge-batch-size:1000}")
+    private int batchSize;
+
+    // bounds a single run, the next window picks up the rest
+    @Value("${app.soft-delete.purge-max-batches:500}")
+    private int maxBatches;
+
+    public SoftDeletePurgeJob(PostRepository postRepository, CommentRepository commentRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${app.soft-delete.purge-cron:0 */10 1-5 * * *}")
+    public void purge() {
+
+        Instant before = Instant.now().minus(retention);
+        int budget = maxBatches;
+
+        // comments go first, posts can only be removed once no comment references them
+        budget -= purgeInBatches("comments", budget, batch -> commentRepository.purgeDeleted(before, batch));
+        budget -= purgeInBatches("comments of deleted posts", budget,
+                batch -> commentRepository.purgeOfDeletedPosts(before, batch));
+        purgeInBatches("posts", budget, batch -> postRepository.purgeDeleted(before, batch));
+    }
+
+    // returns the number of batches used
+    private int purgeInBatches(String what, int budget, IntUnaryOperator deleteBatch) {
+
+        int batches = 0;
+        long purged = 0;
+        int deleted = batchSize;
+        while (deleted == batchSize && batches < budget) {
+            deleted = transactionTemplate.execute(status -> deleteBatch.applyAsInt(batchSize));
+            purged += deleted;
+            batches++;
+        }
+        if (purged > 0) {
+            log.info("Purged {} soft-deleted {}", purged, what);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,16 @@
+package com.mihailstoica.blog.sql;
+
+import java.lang.annotation.*;
+
+// maximum number of SQL statements one request to the annotated handler (or every handler of the annotated
+// controller) may run; requests above it are logged and counted, and fail in strict mode
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryBudget {
+
+    // for endpoints whose statements grow with the request body by design, like streamed imports
+    int UNLIMITED = Integer.MAX_VALUE;
+
+    int value();
+}
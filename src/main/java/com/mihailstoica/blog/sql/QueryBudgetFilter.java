@@ -0,0 +1,125 @@
+package com.mihailstoica.blog.sql;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// counts the SQL statements of each request, security filters included, and checks them against the
+// handler's @QueryBudget or the default budget. Statements of async work (streamed responses, SSE, the
+// reactive API) run on other threads and are not counted.
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    public static final String STATEMENTS_METRIC = "blog.sql.statements";
+
+    public static final String BUDGET_EXCEEDED_METRIC = "blog.sql.budget.exceeded";
+
+    public static final String REPEATED_METRIC = "blog.sql.repeated";
+
+    // shapes listed in the log line of a request over its budget
+    private static final int LOGGED_SHAPES = 5;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int defaultBudget;
+
+    private final int repeatThreshold;
+
+    private final boolean strict;
+
+    public QueryBudgetFilter(MeterRegistry meterRegistry, int defaultBudget, int repeatThreshold, boolean strict) {
+        this.meterRegistry = meterRegistry;
+        this.defaultBudget = defaultBudget;
+        this.repeatThreshold = repeatThreshold;
+        this.strict = strict;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Map<String, Integer> shapes;
+        StatementCounter.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            shapes = StatementCounter.end();
+        }
+        check(request, shapes);
+    }
+
+    private void check(HttpServletRequest request, Map<String, Integer> shapes) {
+
+        // the route template, the raw path would make every post its own endpoint
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+        String endpoint = method + " " + uri;
+
+        int total = shapes.values().stream().mapToInt(Integer::intValue).sum();
+        DistributionSummary.builder(STATEMENTS_METRIC)
+                .description("SQL statements run by one request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(total);
+
+        // the same statement again and again is the signature of a lazy association loaded per row; pooled
+        // sequences of a large batch insert legitimately repeat
+        shapes.forEach((shape, count) -> {
+            if (count >= repeatThreshold && !isSequenceCall(shape)) {
+                log.warn("Possible N+1 on {}: {} times {}", endpoint, count, shape);
+                Counter.builder(REPEATED_METRIC).tags("method", method, "uri", uri).register(meterRegistry).increment();
+            }
+        });
+
+        int budget = budget(request);
+        if (total <= budget) {
+            return;
+        }
+        Counter.builder(BUDGET_EXCEEDED_METRIC).tags("method", method, "uri", uri).register(meterRegistry).increment();
+        String message = String.format("%s ran %d SQL statements, over its budget of %d: %s", endpoint, total, budget,
+                shapes.entrySet().stream()
+                        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                        .limit(LOGGED_SHAPES)
+                        .map(entry -> entry.getValue() + "x " + entry.getKey())
+                        .collect(Collectors.joining("; ")));
+        log.warn(message);
+
+        // thrown after the response was written: it fails MockMvc tests, not what the client received
+        if (strict) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static boolean isSequenceCall(String shape) {
+        return shape.contains("nextval") || shape.startsWith("call next value for");
+    }
+
+    private int budget(HttpServletRequest request) {
+
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            QueryBudget budget = handler.getMethodAnnotation(QueryBudget.class);
+            if (budget == null) {
+                budget = handler.getBeanType().getAnnotation(QueryBudget.class);
+            }
+            if (budget != null) {
+                return budget.value();
+            }
+        }
+        return defaultBudget;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mihailstoica.blog.sql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// counts the statements Hibernate prepares on the current thread between begin() and end(), by shape: the SQL
+// with literals and IN lists collapsed, so that the same query with other arguments has the same shape.
+// Registered as Hibernate's statement inspector, which makes one instance serve every session.
+public class StatementCounter implements StatementInspector {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ThreadLocal<Map<String, Integer>> SHAPES = new ThreadLocal<>();
+
+    public static void begin() {
+        SHAPES.set(new HashMap<>());
+    }
+
+    // statements by shape since begin(), empty when counting was not started on this thread
+    public static Map<String, Integer> end() {
+
+        Map<String, Integer> shapes = SHAPES.get();
+        SHAPES.remove();
+        return shapes == null ? Map.of() : shapes;
+    }
+
+    @Override
+    public String inspect(String sql) {
+
+        Map<String, Integer> shapes = SHAPES.get();
+        if (shapes != null) {
+            shapes.merge(shape(sql), 1, Integer::sum);
+        }
+        return sql;
+    }
+
+    static String shape(String sql) {
+
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,288 @@
+package com.mihailstoica.blog.stream;
+
+import com.mihailstoica.blog.event.CommentCreatedEvent;
+import com.mihailstoica.blog.event.PostDeletedEvent;
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.exception.ResourceNotFoundException;
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// fan-out of committed comments to the SSE subscribers of their post. An idle subscriber is only an async
+// request and a small queue; a few sender threads drain the queues that have something to send. A subscriber
+// whose queue is full is disconnected instead of slowing down the others, and reconnects to read from the API.
+// A send stuck on a client that stopped reading holds its sender until the connector's write timeout; past
+// app.comment-stream.write-timeout that subscriber is dropped and a spare sender takes over its thread's work.
+@Component
+public class CommentStreamHub {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentStreamHub.class);
+
+    private static final Object HEARTBEAT = new Object();
+
+    // send state of a subscriber: idle, a running send (its start, see now()) or a send past the write timeout
+    private static final long IDLE = 0L;
+    private static final long STALLED = -1L;
+
+    private final PostRepository postRepository;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor senders;
+
+    private final int senderThreads;
+
+    private final long origin = System.nanoTime();
+
+    private int stalledSends;
+
+    @Value("${app.comment-stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${app.comment-stream.max-subscribers:40000}")
+    private int maxSubscribers;
+
+    @Value("${app.comment-stream.timeout:PT30M}")
+    private Duration timeout;
+
+    @Value("${app.comment-stream.write-timeout:PT10S}")
+    private Duration writeTimeout;
+
+    // spare senders started for stalled sends, at most
+    @Value("${app.comment-stream.max-stalled-senders:32}")
+    private int maxStalledSenders;
+
+    public CommentStreamHub(PostRepository postRepository,
+                            @Value("${app.comment-stream.sender-threads:4}") int senderThreads) {
+        this.postRepository = postRepository;
+        this.senderThreads = senderThreads;
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("comment-stream-"));
+    }
+
+    public SseEmitter subscribe(Long postId) {
+
+        if (!postRepository.existsById(postId)) {
+            throw new ResourceNotFoundException("Post", "id", postId);
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new BlogApiException(HttpStatus.SERVICE_UNAVAILABLE, "Too many comment stream subscribers");
+        }
+
+        SseEmitter emitter = createEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(postId, emitter, bufferSize);
+        // added inside compute, like the removal in close(), so that it never lands in a set being dropped
+        subscribers.compute(postId, (id, postSubscribers) -> {
+            Set<Subscriber> added = postSubscribers != null ? postSubscribers : ConcurrentHashMap.newKeySet();
+            added.add(subscriber);
+            return added;
+        });
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        // the client is expected to reconnect, so a timeout is a normal end of the stream
+        emitter.onTimeout(emitter::complete);
+        return emitter;
+    }
+
+    // after commit, so that subscribers never see a comment that was rolled back
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentCreated(CommentCreatedEvent event) {
+
+        Set<Subscriber> postSubscribers = subscribers.get(event.postId());
+        if (postSubscribers != null) {
+            postSubscribers.forEach(subscriber -> subscriber.offer(event.comment()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+
+        Set<Subscriber> postSubscribers = subscribers.get(event.id());
+        if (postSubscribers != null) {
+            postSubscribers.forEach(Subscriber::complete);
+        }
+    }
+
+    // keeps idle connections open through proxies and detects clients that went away
+    @Scheduled(fixedDelayString = "${app.comment-stream.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscribers.values().forEach(postSubscribers -> postSubscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.comment-stream.write-check-interval:PT1S}")
+    public void checkWriteTimeouts() {
+
+        long now = now();
+        subscribers.values().forEach(postSubscribers ->
+                postSubscribers.forEach(subscriber -> subscriber.checkWriteTimeout(now)));
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // package-private so that tests can observe the sends
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // nanoTime relative to the hub, always positive so that it never collides with IDLE or STALLED
+    private long now() {
+        return System.nanoTime() - origin + 1;
+    }
+
+    // one more (or one less) sender while a stalled send holds a thread
+    private void resizeSenders(int delta) {
+
+        synchronized (senders) {
+            stalledSends += delta;
+            int size = senderThreads + Math.min(stalledSends, maxStalledSenders);
+            if (size > senders.getMaximumPoolSize()) {
+                senders.setMaximumPoolSize(size);
+                senders.setCorePoolSize(size);
+            } else {
+                senders.setCorePoolSize(size);
+                senders.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        subscribers.values().forEach(postSubscribers -> postSubscribers.forEach(Subscriber::complete));
+        senders.shutdownNow();
+    }
+
+    private final class Subscriber {
+
+        private final Long postId;
+
+        private final SseEmitter emitter;
+
+        private final Queue<Object> queue;
+
+        // at most one sender drains a queue at a time
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private final AtomicLong sendState = new AtomicLong(IDLE);
+
+        private Subscriber(Long postId, SseEmitter emitter, int bufferSize) {
+            this.postId = postId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void offer(Object message) {
+
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(message)) {
+                log.debug("Disconnecting slow comment stream subscriber of post {}", postId);
+                complete();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+
+            do {
+                Object message;
+                while (!closed.get() && (message = queue.poll()) != null) {
+                    send(message);
+                }
+                draining.set(false);
+                // a message offered after the last poll but before the flag was reset would otherwise wait
+            } while (!closed.get() && !queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void send(Object message) {
+
+            sendState.set(now());
+            try {
+                if (message == HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    CommentDto comment = (CommentDto) message;
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(comment.getId()))
+                            .name("comment")
+                            .data(comment, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // the client went away or the emitter was completed concurrently
+                complete();
+            } finally {
+                if (sendState.getAndSet(IDLE) == STALLED) {
+                    resizeSenders(-1);
+                    emitter.complete();
+                }
+            }
+        }
+
+        // only marks the subscriber: completing the emitter would wait for the monitor the stuck send holds
+        private void checkWriteTimeout(long now) {
+
+            long startedAt = sendState.get();
+            if (startedAt > IDLE && now - startedAt > writeTimeout.toNanos()
+                    && sendState.compareAndSet(startedAt, STALLED)) {
+                log.debug("Disconnecting stalled comment stream subscriber of post {}", postId);
+                close();
+                resizeSenders(1);
+            }
+        }
+
+        private void complete() {
+
+            close();
+            emitter.complete();
+        }
+
+        private void close() {
+
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            queue.clear();
+            subscriberCount.decrementAndGet();
+            subscribers.computeIfPresent(postId, (id, postSubscribers) -> {
+                postSubscribers.remove(this);
+                return postSubscribers.isEmpty() ? null : postSubscribers;
+            });
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.mihailstoica.blog.utils;
+
+import com.mihailstoica.blog.payload.EntityVersion;
+import org.springframework.web.context.request.WebRequest;
+
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    // sets a strong ETag (resource, id, revision) and Last-Modified on the response and evaluates
+    // If-None-Match / If-Modified-Since; true means the caller should answer 304 without a body
+    public static boolean checkNotModified(WebRequest webRequest, String resource, EntityVersion version) {
+
+        String eTag = "\"" + resource + "-" + version.getId() + "-" + version.getRevision() + "\"";
+        long lastModified = version.getUpdatedAt() != null ? version.getUpdatedAt().toEpochMilli() : -1;
+        return webRequest.checkNotModified(eTag, lastModified);
+    }
+}
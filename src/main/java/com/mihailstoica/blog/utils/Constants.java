@@ -7,4 +7,15 @@ public class Constants {
     public static final String DEFAULT_SORT_BY = "id";
     public static final String DEFAULT_SORT_DIRECTION = "asc";
 
+    // upper bound of a cursor page (limit parameter)
+    public static final int MAX_PAGE_LIMIT = 100;
+
+    public static final String DEFAULT_EXCERPT_LENGTH = "0";
+    public static final int MAX_EXCERPT_LENGTH = 500;
+
+    // sort key of search cursors
+    public static final String SEARCH_RANK = "rank";
+
+    public static final String NDJSON = "application/x-ndjson";
+
 }
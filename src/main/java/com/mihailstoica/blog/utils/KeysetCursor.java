@@ -0,0 +1,78 @@
+package com.mihailstoica.blog.utils;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// opaque position in a result set ordered by (sortBy, id); it carries its own sort so that
+// follow-up pages keep seeking on the same key
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final String sortBy;
+    private final Sort.Direction direction;
+    private final Long id;
+    private final String value;
+
+    public KeysetCursor(String sortBy, Sort.Direction direction, Long id, String value) {
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.id = id;
+        this.value = value;
+    }
+
+    // build the cursor pointing right after the given row
+    public static KeysetCursor after(Object row, Long id, String sortBy, Sort.Direction direction) {
+        Object sortValue = PropertyAccessorFactory.forBeanPropertyAccess(row).getPropertyValue(sortBy);
+        return new KeysetCursor(sortBy, direction, id, sortValue == null ? null : sortValue.toString());
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 4);
+            if (parts.length < 3) {
+                throw new BlogApiException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            return new KeysetCursor(parts[0], Sort.Direction.fromString(parts[1]), Long.valueOf(parts[2]),
+                    parts.length == 4 ? parts[3] : null);
+        } catch (IllegalArgumentException ex) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    // decode a cursor that must have been issued for the given sort key
+    public static KeysetCursor decode(String cursor, String expectedSortBy) {
+        KeysetCursor decoded = decode(cursor);
+        if (!expectedSortBy.equals(decoded.getSortBy())) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        return decoded;
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + direction.name() + SEPARATOR + id + (value == null ? "" : SEPARATOR + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
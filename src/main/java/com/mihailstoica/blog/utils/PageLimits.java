@@ -0,0 +1,21 @@
+package com.mihailstoica.blog.utils;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import org.springframework.http.HttpStatus;
+
+import static com.mihailstoica.blog.utils.Constants.MAX_PAGE_LIMIT;
+
+public final class PageLimits {
+
+    private PageLimits() {
+    }
+
+    // cursor pages fetch limit + 1 rows, so a limit below 1 is rejected and a large one is capped
+    public static int clamp(int limit) {
+
+        if (limit < 1) {
+            throw new BlogApiException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+        return Math.min(limit, MAX_PAGE_LIMIT);
+    }
+}
@@ -0,0 +1,21 @@
+-- Full-text search columns and GIN indexes for app.search.mode = database (PostgreSQL 12+).
+-- Hibernate cannot map generated tsvector columns, so this runs once per database, after the tables exist:
+--   psql -d blog -f V1__search_vectors.sql
+-- CREATE INDEX CONCURRENTLY is not allowed inside a transaction block: run the file without
+-- --single-transaction (and without a migration tool wrapping it in one). Adding a stored generated
+-- column rewrites the table, so run the alter statements in a quiet period on large tables.
+-- Every statement is idempotent.
+
+alter table posts add column if not exists search_vector tsvector generated always as (
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'B') ||
+    setweight(to_tsvector('english', coalesce(content, '')), 'C')) stored;
+
+alter table comments add column if not exists search_vector tsvector generated always as (
+    to_tsvector('english', coalesce(body, ''))) stored;
+
+-- built without blocking writes; a failed concurrent build leaves an INVALID index behind,
+-- drop it (drop index concurrently ...) before running the file again
+create index concurrently if not exists idx_posts_search_vector on posts using gin (search_vector);
+
+create index concurrently if not exists idx_comments_search_vector on comments using gin (search_vector);
@@ -0,0 +1,12 @@
+-- Comment ids come from the pooled sequence comments_seq (allocation size 50) instead of IDENTITY.
+-- Run once per existing database, before the application version using the sequence starts:
+--   psql -d blog -f V2__comments_seq.sql
+-- Hibernate's pooled optimizer hands out the 50 ids up to each value the sequence returns, so the
+-- sequence must sit at or past the highest id already used; it is never moved backwards, which would
+-- hand out ids an instance reserved but has not inserted yet. Every statement is idempotent.
+
+create sequence if not exists comments_seq start with 1 increment by 50;
+
+select setval('comments_seq', greatest(
+        (select coalesce(max(id), 1) from comments),
+        (select last_value from comments_seq)));
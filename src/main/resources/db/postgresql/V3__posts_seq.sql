@@ -0,0 +1,11 @@
+-- Post ids come from the pooled sequence posts_seq (allocation size 50) instead of IDENTITY, so that the
+-- NDJSON import can batch its inserts. Run once per existing database, before the application version
+-- using the sequence starts:
+--   psql -d blog -f V3__posts_seq.sql
+-- Seeded the same way as comments_seq in V2__comments_seq.sql. Every statement is idempotent.
+
+create sequence if not exists posts_seq start with 1 increment by 50;
+
+select setval('posts_seq', greatest(
+        (select coalesce(max(id), 1) from posts),
+        (select last_value from posts_seq)));
@@ -0,0 +1,25 @@
+-- Comment count and last comment time denormalized onto posts. The application only moves the columns
+-- by increments on comment writes, so existing posts need their starting values once:
+--   psql -d blog -f V4__post_comment_counters.sql
+-- Run it before the application version using the columns starts; the columns it adds match the ones
+-- Hibernate would create. The update recomputes both values from the comments table, so running it
+-- again is harmless, but it locks every post row it touches: run it in a quiet period on large tables.
+
+alter table posts add column if not exists comment_count bigint not null default 0;
+
+alter table posts add column if not exists last_comment_at timestamp;
+
+alter table comments add column if not exists deleted_at timestamp;
+
+-- soft-deleted comments are no longer counted. Comments written before comments.updated_at existed
+-- have no time at all; a post with only such comments gets the time of this backfill, the earliest
+-- time known to be no earlier than its last comment
+update posts p
+set comment_count   = c.live_count,
+    last_comment_at = coalesce(c.last_updated_at, now())
+from (select post_id,
+             count(*) filter (where deleted_at is null) as live_count,
+             max(updated_at)                            as last_updated_at
+      from comments
+      group by post_id) c
+where c.post_id = p.id;
@@ -0,0 +1,194 @@
+package com.mihailstoica.blog.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingDataSourceTests {
+
+    private static DataSource database(String name) {
+
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+        jdbcTemplate.execute("delete from node");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+
+    private ReplicaRoutingDataSource routingDataSource(String lagQuery) {
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(database("primary"),
+                List.of(database("replica")), Duration.ofSeconds(5), lagQuery);
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.checkReplicaLag();
+        return routingDataSource;
+    }
+
+    // the node a transaction was routed to
+    private static String nodeOf(DataSource routingDataSource, boolean readOnly) {
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+    }
+
+    // a read whose result would be cached
+    public static class CachedReads {
+
+        private final DataSource routingDataSource;
+
+        public CachedReads(DataSource routingDataSource) {
+            this.routingDataSource = routingDataSource;
+        }
+
+        @ReadFromPrimary
+        public String readNode() {
+            return nodeOf(routingDataSource, true);
+        }
+    }
+
+    // an anonymous request from the given address
+    private static void request(String uri, String remoteAddress) {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setRemoteAddr(remoteAddress);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    public void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource - read-only transactions go to the replica")
+    @Test
+    public void givenHealthyReplica_whenTransaction_thenReadOnlyGoesToReplica() {
+
+        // given - precondition or setup
+        ReplicaRoutingDataSource routingDataSource = routingDataSource("select 0");
+
+        // when - action or the behaviour that we are going to test
+        String readNode = nodeOf(routingDataSource, true);
+        String writeNode = nodeOf(routingDataSource, false);
+
+        // then - verify the output
+        assertThat(readNode).isEqualTo("replica");
+        assertThat(writeNode).isEqualTo("primary");
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource - lagging replica is skipped")
+    @Test
+    public void givenLaggingReplica_whenReadOnlyTransaction_thenGoesToPrimary() {
+
+        // given - precondition or setup
+        ReplicaRoutingDataSource routingDataSource = routingDataSource("select 10");
+
+        // when - action or the behaviour that we are going to test
+        String readNode = nodeOf(routingDataSource, true);
+
+        // then - verify the output
+        assertThat(readNode).isEqualTo("primary");
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource - reads stick to the primary after a client's write")
+    @Test
+    public void givenClientWrote_whenReadOnlyTransaction_thenGoesToPrimaryForThatClientOnly() {
+
+        // given - precondition or setup
+        ReplicaRoutingDataSource routingDataSource = routingDataSource("select 0");
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null, "ROLE_USER"));
+        nodeOf(routingDataSource, false);
+
+        // when - action or the behaviour that we are going to test
+        String writerReadNode = nodeOf(routingDataSource, true);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader", null, "ROLE_USER"));
+        String otherReadNode = nodeOf(routingDataSource, true);
+
+        // then - verify the output
+        assertThat(writerReadNode).isEqualTo("primary");
+        assertThat(otherReadNode).isEqualTo("replica");
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource - a user's write does not pin others at the same address")
+    @Test
+    public void givenUserWroteFromSharedAddress_whenOtherClientReads_thenGoesToReplica() {
+
+        // given - precondition or setup
+        ReplicaRoutingDataSource routingDataSource = routingDataSource("select 0");
+        request("/api/v1/posts", "10.0.0.1");
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null, "ROLE_USER"));
+        nodeOf(routingDataSource, false);
+
+        // when - action or the behaviour that we are going to test
+        // another client behind the same load balancer or NAT
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader", null, "ROLE_USER"));
+        String otherUserReadNode = nodeOf(routingDataSource, true);
+        SecurityContextHolder.clearContext();
+        request("/api/v1/posts/1", "10.0.0.1");
+        String anonymousReadNode = nodeOf(routingDataSource, true);
+
+        // then - verify the output
+        assertThat(otherUserReadNode).isEqualTo("replica");
+        assertThat(anonymousReadNode).isEqualTo("replica");
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource - login reads stick to the primary after a sign-up")
+    @Test
+    public void givenSignUpFromAddress_whenLoginFromSameAddress_thenGoesToPrimary() {
+
+        // given - precondition or setup
+        ReplicaRoutingDataSource routingDataSource = routingDataSource("select 0");
+        request("/api/v1/auth/signup", "10.0.0.1");
+        nodeOf(routingDataSource, false);
+
+        // when - action or the behaviour that we are going to test
+        request("/api/v1/auth/login", "10.0.0.1");
+        String loginReadNode = nodeOf(routingDataSource, true);
+        request("/api/v1/auth/login", "10.0.0.2");
+        String otherLoginReadNode = nodeOf(routingDataSource, true);
+
+        // then - verify the output
+        assertThat(loginReadNode).isEqualTo("primary");
+        assertThat(otherLoginReadNode).isEqualTo("replica");
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource - @ReadFromPrimary reads go to the primary")
+    @Test
+    public void givenReadFromPrimaryMethod_whenReadOnlyTransaction_thenGoesToPrimary() {
+
+        // given - precondition or setup
+        ReplicaRoutingDataSource routingDataSource = routingDataSource("select 0");
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new CachedReads(routingDataSource));
+        proxyFactory.addAspect(new ReadFromPrimaryAspect());
+        CachedReads cachedReads = proxyFactory.getProxy();
+
+        // when - action or the behaviour that we are going to test
+        String cachedReadNode = cachedReads.readNode();
+        String readNode = nodeOf(routingDataSource, true);
+
+        // then - verify the output
+        assertThat(cachedReadNode).isEqualTo("primary");
+        assertThat(readNode).isEqualTo("replica");
+    }
+}
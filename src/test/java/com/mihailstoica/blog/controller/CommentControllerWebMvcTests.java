@@ -0,0 +1,103 @@
+package com.mihailstoica.blog.controller;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.service.CommentService;
+import com.mihailstoica.blog.stream.CommentStreamHub;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// only the comment controller and the exception handler, without the security filters
+@WebMvcTest(controllers = CommentController.class)
+@AutoConfigureMockMvc(addFilters = false)
+public class CommentControllerWebMvcTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CommentService commentService;
+
+    @MockBean
+    private CommentStreamHub commentStreamHub;
+
+    @DisplayName("JUnit test for streamComments - too many subscribers is a 503")
+    @Test
+    public void givenSubscriberLimitReached_whenStreamComments_thenReturnServiceUnavailable() throws Exception {
+
+        // given - precondition or setup
+        given(commentStreamHub.subscribe(1L)).willThrow(
+                new BlogApiException(HttpStatus.SERVICE_UNAVAILABLE, "Too many comment stream subscribers"));
+
+        // when - action or behaviour that we are going to test
+        ResultActions response = mockMvc.perform(get("/api/v1/posts/1/comments/stream"));
+
+        // then - verify the output
+        response.andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value("Too many comment stream subscribers"));
+    }
+
+    private static CommentDto commentDto(long version, String body) {
+
+        CommentDto commentDto = new CommentDto();
+        commentDto.setId(2L);
+        commentDto.setBody(body);
+        commentDto.setVersion(version);
+        commentDto.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        return commentDto;
+    }
+
+    @DisplayName("JUnit test for getCommentById - If-None-Match with the current ETag is a 304")
+    @Test
+    public void givenCurrentETag_whenGetCommentById_thenReturnNotModified() throws Exception {
+
+        // given - precondition or setup
+        given(commentService.getCommentById(1L, 2L)).willReturn(commentDto(5L, "comment body"));
+
+        // when - action or behaviour that we are going to test
+        ResultActions response = mockMvc.perform(get("/api/v1/posts/1/comments/2")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"comment-2-5\""));
+
+        // then - verify the output
+        response.andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"comment-2-5\""))
+                .andExpect(content().string(""));
+    }
+
+    @DisplayName("JUnit test for getCommentById - a new version answers 200 with a new ETag")
+    @Test
+    public void givenStaleETag_whenGetCommentById_thenReturnCommentWithNewETag() throws Exception {
+
+        // given - precondition or setup
+        CommentDto commentDto = commentDto(6L, "edited body");
+        given(commentService.getCommentById(1L, 2L)).willReturn(commentDto);
+
+        // when - action or behaviour that we are going to test
+        ResultActions response = mockMvc.perform(get("/api/v1/posts/1/comments/2")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"comment-2-5\""));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"comment-2-6\""))
+                .andExpect(jsonPath("$.body").value(commentDto.getBody()))
+                .andExpect(jsonPath("$.version").value(6))
+                .andExpect(jsonPath("$.revision").doesNotExist());
+    }
+}
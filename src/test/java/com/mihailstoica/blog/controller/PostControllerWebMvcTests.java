@@ -0,0 +1,162 @@
+package com.mihailstoica.blog.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.service.PostService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// only the post controller and the exception handler, without the security filters; the older
+// PostControllerTests need the full security configuration
+@WebMvcTest(controllers = PostController.class)
+@AutoConfigureMockMvc(addFilters = false)
+public class PostControllerWebMvcTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private PostService postService;
+
+    private PostDto postDto;
+
+    @BeforeEach
+    public void setup() {
+        this.postDto = new PostDto();
+        this.postDto.setTitle("Title");
+        this.postDto.setDescription("Description of the post");
+        this.postDto.setContent("Content");
+    }
+
+    @DisplayName("JUnit test for updatePost - a concurrent modification is a 409")
+    @Test
+    public void givenConcurrentModification_whenUpdatePost_thenReturnConflict() throws Exception {
+
+        // given - precondition or setup
+        given(postService.updatePost(any(PostDto.class), eq(1L)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Post.class, 1L));
+
+        // when - action or behaviour that we are going to test
+        ResultActions response = mockMvc.perform(put("/api/v1/posts/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(postDto)));
+
+        // then - verify the output
+        response.andExpect(status().isConflict());
+    }
+
+    @DisplayName("JUnit test for exportPosts - the export gets its own async timeout")
+    @Test
+    public void givenExportTimeout_whenExportPosts_thenAsyncRequestUsesIt() throws Exception {
+
+        // when - action or behaviour that we are going to test
+        MvcResult result = mockMvc.perform(get("/api/v1/posts/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then - verify the output
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofHours(1).toMillis());
+    }
+
+    private static PostDto postDto(long version, long commentCount) {
+
+        PostDto postDto = new PostDto();
+        postDto.setId(1L);
+        postDto.setTitle("Title");
+        postDto.setDescription("Description of the post");
+        postDto.setContent("Content");
+        postDto.setCommentCount(commentCount);
+        postDto.setVersion(version);
+        postDto.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        return postDto;
+    }
+
+    @DisplayName("JUnit test for getPostById - If-None-Match with the current ETag is a 304")
+    @Test
+    public void givenCurrentETag_whenGetPostById_thenReturnNotModified() throws Exception {
+
+        // given - precondition or setup
+        given(postService.getPostById(1L)).willReturn(postDto(3L, 2L));
+        String eTag = mockMvc.perform(get("/api/v1/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"post-1-3.2\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when - action or behaviour that we are going to test
+        ResultActions response = mockMvc.perform(get("/api/v1/posts/1").header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        // then - verify the output
+        response.andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @DisplayName("JUnit test for getPostById - a new version or comment count answers 200 with a new ETag")
+    @Test
+    public void givenStaleETag_whenGetPostById_thenReturnPostWithNewETag() throws Exception {
+
+        // given - precondition or setup
+        given(postService.getPostById(1L)).willReturn(postDto(4L, 2L), postDto(4L, 3L));
+
+        // when - action or behaviour that we are going to test
+        ResultActions edited = mockMvc.perform(get("/api/v1/posts/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"post-1-3.2\""));
+        ResultActions commented = mockMvc.perform(get("/api/v1/posts/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"post-1-4.2\""));
+
+        // then - verify the output
+        edited.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"post-1-4.2\""))
+                .andExpect(jsonPath("$.title").value(postDto.getTitle()));
+        commented.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"post-1-4.3\""))
+                .andExpect(jsonPath("$.commentCount").value(3));
+    }
+
+    @DisplayName("JUnit test for getPostById - no database connection in time is a 503")
+    @Test
+    public void givenNoDatabaseConnection_whenGetPostById_thenReturnServiceUnavailable() throws Exception {
+
+        // given - precondition or setup
+        given(postService.getPostById(1L)).willThrow(
+                new CannotCreateTransactionException("Could not open JPA EntityManager for transaction"));
+
+        // when - action or behaviour that we are going to test
+        ResultActions response = mockMvc.perform(get("/api/v1/posts/1"));
+
+        // then - verify the output
+        response.andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.message").value("Database is busy, retry later"));
+    }
+}
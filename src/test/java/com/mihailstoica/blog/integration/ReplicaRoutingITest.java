@@ -0,0 +1,150 @@
+package com.mihailstoica.blog.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mihailstoica.blog.config.ReplicaRoutingDataSource;
+import com.mihailstoica.blog.payload.PostDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// two in-memory H2 databases stand in for the primary and a replica; the replica holds a stale copy of the
+// post, so every response shows which database it was read from
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingITest.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.r2dbc.url=r2dbc:h2:mem:///routing-r2dbc",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "app.datasource.replica-urls=" + ReplicaRoutingITest.REPLICA_URL,
+        "app.datasource.replica-lag-query=select 0"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingITest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    private final long postId = 1000L;
+
+    @BeforeEach
+    public void setup() {
+
+        // the replica gets the schema Hibernate created on the primary
+        replica.execute("drop all objects");
+        primary.queryForList("script nodata", String.class).stream()
+                .filter(statement -> !statement.startsWith("--") && !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+
+        primary.update("insert into posts (id, title, description, content, comment_count, version) "
+                + "values (?, 'Title', 'Description of the post', 'Content', 0, 1)", postId);
+        // one version behind the primary
+        replica.update("insert into posts (id, title, description, content, comment_count, version) "
+                + "values (?, 'Stale title', 'Description of the post', 'Content', 0, 0)", postId);
+
+        replicaRoutingDataSource.checkReplicaLag();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        primary.update("delete from comments");
+        primary.update("delete from posts");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @DisplayName("Integration test for replica routing - a read then a write in one request both use the primary")
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    @Test
+    public void givenPostOnReplica_whenUpdatePost_thenReadAndWriteGoToPrimary() throws Exception {
+
+        // given - precondition or setup
+        PostDto postDto = new PostDto();
+        postDto.setTitle("New title");
+        postDto.setDescription("Description of the post");
+        postDto.setContent("Content");
+        // cached reads are filled from the primary
+        mockMvc.perform(get("/api/v1/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Title")));
+
+        // when - action or behaviour that we are going to test
+        // updatePost looks the post up before saving it
+        ResultActions response = mockMvc.perform(put("/api/v1/posts/{id}", postId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(postDto)));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("New title")));
+        assertThat(primary.queryForObject("select title from posts where id = ?", String.class, postId))
+                .isEqualTo("New title");
+        assertThat(replica.queryForObject("select title from posts where id = ?", String.class, postId))
+                .isEqualTo("Stale title");
+        // and the writer reads its own write
+        mockMvc.perform(get("/api/v1/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("New title")));
+    }
+
+    @DisplayName("Integration test for replica routing - cached posts are read from the primary, comments from the replica")
+    @Test
+    public void givenStaleReplica_whenGetPostAndComments_thenPostIsNotCachedFromReplica() throws Exception {
+
+        // given - precondition or setup
+        // a comment only the replica has, so the response shows where the comments were read
+        replica.update("insert into comments (id, name, email, body, version, post_id) "
+                + "values (1, 'Reader', 'reader@gmail.com', 'Comment on the replica', 0, ?)", postId);
+
+        // when - action or behaviour that we are going to test
+        ResultActions postResponse = mockMvc.perform(get("/api/v1/posts/{id}", postId));
+        ResultActions commentsResponse = mockMvc.perform(get("/api/v1/posts/{postId}/comments", postId));
+
+        // then - verify the output
+        // the post cache is shared by every user for its whole lifetime, so it never takes a lagging row
+        postResponse.andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Title")));
+        mockMvc.perform(get("/api/v1/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Title")));
+        // uncached reads still go to the replica
+        commentsResponse.andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].body", is("Comment on the replica")));
+    }
+}
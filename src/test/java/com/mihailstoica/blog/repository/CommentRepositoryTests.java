@@ -0,0 +1,118 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.entity.Comment;
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.CommentSearchHit;
+import com.mihailstoica.blog.security.CaffeineUserCache;
+import com.mihailstoica.blog.security.TokenRevocationList;
+import com.mihailstoica.blog.security.UserCacheInvalidationListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// runs on the embedded H2 database (LIKE fallback of the search query), see PostRepositoryTests
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({UserCacheInvalidationListener.class, CaffeineUserCache.class, TokenRevocationList.class})
+public class CommentRepositoryTests {
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Post post;
+
+    private Comment caching;
+
+    private Comment cachingAgain;
+
+    private Comment unrelated;
+
+    @BeforeEach
+    public void setup() {
+        Post post = new Post();
+        post.setTitle("Title");
+        post.setDescription("Description of the post");
+        post.setContent("Content");
+        this.post = postRepository.save(post);
+
+        this.caching = commentRepository.save(comment("Great post on caching"));
+        this.cachingAgain = commentRepository.save(comment("Caching again"));
+        this.unrelated = commentRepository.save(comment("Unrelated"));
+        entityManager.flush();
+    }
+
+    private Comment comment(String body) {
+        Comment comment = new Comment();
+        comment.setName("Test-name");
+        comment.setEmail("testemail@test.com");
+        comment.setBody(body);
+        comment.setPost(post);
+        return comment;
+    }
+
+    private long commentRows() {
+        return ((Number) entityManager.getEntityManager()
+                .createNativeQuery("select count(*) from comments")
+                .getSingleResult()).longValue();
+    }
+
+    @DisplayName("JUnit test for softDeleteByIdAndPostId - the comment leaves list and search")
+    @Test
+    public void givenSoftDeletedComment_whenListAndSearch_thenCommentIsHidden() {
+
+        // given - precondition or setup
+        int deleted = commentRepository.softDeleteByIdAndPostId(caching.getId(), post.getId(), Instant.now());
+        entityManager.clear();
+
+        // when - action or behaviour that we are going to test
+        List<Comment> page = commentRepository.findNextCommentsByPostId(
+                post.getId(), "id", Sort.Direction.ASC, null, 10);
+        List<CommentSearchHit> hits = commentRepository.searchCommentsByPostId(post.getId(), "caching", null, 10);
+
+        // then - verify the output
+        assertThat(deleted).isEqualTo(1);
+        assertThat(page).extracting(Comment::getId).containsExactly(cachingAgain.getId(), unrelated.getId());
+        assertThat(hits).extracting(CommentSearchHit::getId).containsExactly(cachingAgain.getId());
+        assertThat(commentRepository.findByIdAndPostId(caching.getId(), post.getId())).isEmpty();
+    }
+
+    @DisplayName("JUnit test for purgeDeleted - only rows past the retention, at most a batch at a time")
+    @Test
+    public void givenSoftDeletedComments_whenPurgeDeleted_thenRemoveExpiredRowsInBatches() {
+
+        // given - precondition or setup
+        Instant now = Instant.now();
+        Instant before = now.minus(Duration.ofHours(1));
+        commentRepository.softDeleteByIdAndPostId(caching.getId(), post.getId(), now.minus(Duration.ofHours(2)));
+        commentRepository.softDeleteByIdAndPostId(cachingAgain.getId(), post.getId(), now.minus(Duration.ofHours(2)));
+        commentRepository.softDeleteByIdAndPostId(unrelated.getId(), post.getId(), now);
+
+        // when - action or behaviour that we are going to test
+        int firstBatch = commentRepository.purgeDeleted(before, 1);
+        int secondBatch = commentRepository.purgeDeleted(before, 1);
+        int thirdBatch = commentRepository.purgeDeleted(before, 1);
+
+        // then - verify the output
+        assertThat(firstBatch).isEqualTo(1);
+        assertThat(secondBatch).isEqualTo(1);
+        assertThat(thirdBatch).isZero();
+        // the comment deleted within the retention is still there, only hidden
+        assertThat(commentRows()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,83 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.PostVersion;
+import com.mihailstoica.blog.security.CaffeineUserCache;
+import com.mihailstoica.blog.security.TokenRevocationList;
+import com.mihailstoica.blog.security.UserCacheInvalidationListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// a post edit and a comment write racing on the same row; both commit real transactions, so the test
+// runs without the usual rolled back test transaction and cleans up after itself
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({UserCacheInvalidationListener.class, CaffeineUserCache.class, TokenRevocationList.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PostCounterConcurrencyTests {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Long postId;
+
+    @BeforeEach
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Post post = new Post();
+        post.setTitle("Title");
+        post.setDescription("Description of the post");
+        post.setContent("Content");
+        postId = postRepository.save(post).getId();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        postRepository.deleteAll();
+    }
+
+    @DisplayName("JUnit test for Post - a post edit does not write back comment counters loaded before a comment write")
+    @Test
+    public void givenPostLoaded_whenCommentAddedBeforeEditCommits_thenKeepCommentCounters() {
+
+        // given - precondition or setup
+        Instant commentedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        // when - action or behaviour that we are going to test
+        transactionTemplate.executeWithoutResult(status -> {
+            Post post = postRepository.findById(postId).orElseThrow();
+            // a comment is created and committed by another request while the edit is in progress
+            CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(commentStatus ->
+                    postRepository.addComments(postId, 1, commentedAt))).join();
+            post.setTitle("New title");
+        });
+
+        // then - verify the output
+        Post post = postRepository.findById(postId).orElseThrow();
+        PostVersion version = postRepository.findVersionById(postId).orElseThrow();
+        assertThat(post.getTitle()).isEqualTo("New title");
+        assertThat(post.getCommentCount()).isEqualTo(1);
+        assertThat(post.getLastCommentAt()).isEqualTo(commentedAt);
+        assertThat(version.getVersion()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,184 @@
+package com.mihailstoica.blog.repository;
+
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.PostSearchHit;
+import com.mihailstoica.blog.payload.PostVersion;
+import com.mihailstoica.blog.security.CaffeineUserCache;
+import com.mihailstoica.blog.security.TokenRevocationList;
+import com.mihailstoica.blog.security.UserCacheInvalidationListener;
+import com.mihailstoica.blog.utils.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// runs on the embedded H2 database, which exercises the LIKE fallback of the search queries;
+// the entity listener beans are imported because Hibernate resolves them from the context
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({UserCacheInvalidationListener.class, CaffeineUserCache.class, TokenRevocationList.class})
+public class PostRepositoryTests {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    public void setup() {
+        postRepository.save(post("Spring caching", "Description of caching", "Caffeine in front of JPA"));
+        postRepository.save(post("Keyset paging", "Description of paging", "Seek instead of 100% OFFSET"));
+        postRepository.save(post("More caching", "Another description", "Evicting the SPRING cache"));
+    }
+
+    private Post post(String title, String description, String content) {
+        Post post = new Post();
+        post.setTitle(title);
+        post.setDescription(description);
+        post.setContent(content);
+        return post;
+    }
+
+    @DisplayName("JUnit test for searchPosts - fallback search paged by cursor")
+    @Test
+    public void givenQuery_whenSearchPosts_thenReturnMatchingPostsPagedByCursor() {
+
+        // when - action or behaviour that we are going to test
+        List<PostSearchHit> firstPage = postRepository.searchPosts("spring", null, 1);
+        PostSearchHit lastHit = firstPage.get(0);
+        KeysetCursor cursor = KeysetCursor.after(lastHit, lastHit.getId(), "rank", Sort.Direction.DESC);
+        List<PostSearchHit> secondPage = postRepository.searchPosts("spring", cursor, 1);
+
+        // then - verify the output
+        assertThat(firstPage).extracting(PostSearchHit::getTitle).containsExactly("Spring caching", "More caching");
+        assertThat(secondPage).extracting(PostSearchHit::getTitle).containsExactly("More caching");
+    }
+
+    @DisplayName("JUnit test for searchPosts - LIKE wildcards are matched literally")
+    @Test
+    public void givenQueryWithWildcard_whenSearchPosts_thenMatchLiterally() {
+
+        // when - action or behaviour that we are going to test
+        List<PostSearchHit> hits = postRepository.searchPosts("100%", null, 10);
+
+        // then - verify the output
+        assertThat(hits).extracting(PostSearchHit::getTitle).containsExactly("Keyset paging");
+        assertThat(postRepository.searchPosts("1_0", null, 10)).isEmpty();
+    }
+
+    @DisplayName("JUnit test for addComments - the ETag revision moves, the optimistic lock version does not")
+    @Test
+    public void givenPost_whenAddComments_thenRevisionChangesAndVersionKept() {
+
+        // given - precondition or setup
+        Post post = postRepository.saveAndFlush(post("Counted", "Description of counting", "Comment counters"));
+        PostVersion before = postRepository.findVersionById(post.getId()).orElseThrow();
+
+        // when - action or behaviour that we are going to test
+        int updated = postRepository.addComments(post.getId(), 2, Instant.now());
+        PostVersion after = postRepository.findVersionById(post.getId()).orElseThrow();
+
+        // then - verify the output
+        assertThat(updated).isEqualTo(1);
+        assertThat(after.getVersion()).isEqualTo(before.getVersion());
+        assertThat(after.getCommentCount()).isEqualTo(2);
+        assertThat(after.getRevision()).isNotEqualTo(before.getRevision());
+    }
+
+    @DisplayName("JUnit test for removeComment and addComments - same comment count, new ETag revision")
+    @Test
+    public void givenCommentedPost_whenCommentRemovedAndAnotherAdded_thenRevisionChanges() {
+
+        // given - precondition or setup
+        Post post = postRepository.saveAndFlush(post("Counted", "Description of counting", "Comment counters"));
+        postRepository.addComments(post.getId(), 1, Instant.parse("2024-01-01T00:00:00Z"));
+        PostVersion before = postRepository.findVersionById(post.getId()).orElseThrow();
+
+        // when - action or behaviour that we are going to test
+        postRepository.removeComment(post.getId(), Instant.parse("2024-01-02T00:00:00Z"));
+        postRepository.addComments(post.getId(), 1, Instant.parse("2024-01-03T00:00:00Z"));
+        PostVersion after = postRepository.findVersionById(post.getId()).orElseThrow();
+
+        // then - verify the output
+        assertThat(after.getCommentCount()).isEqualTo(before.getCommentCount());
+        assertThat(after.getRevision()).isNotEqualTo(before.getRevision());
+    }
+
+    // every post in the order the keyset pages return them, following each page's cursor
+    private List<Long> walkPages(String sortBy, Sort.Direction direction, int limit) {
+
+        List<Long> ids = new ArrayList<>();
+        KeysetCursor cursor = null;
+        // a cursor that does not move would repeat rows forever
+        long pages = postRepository.count() + 1;
+        for (int i = 0; i < pages; i++) {
+            List<Post> page = postRepository.findNextPosts(sortBy, direction, cursor, limit);
+            List<Post> content = page.subList(0, Math.min(limit, page.size()));
+            content.forEach(post -> ids.add(post.getId()));
+            if (page.size() <= limit) {
+                return ids;
+            }
+            Post last = content.get(content.size() - 1);
+            cursor = KeysetCursor.decode(KeysetCursor.after(last, last.getId(), sortBy, direction).encode());
+        }
+        throw new AssertionError("Paging did not end after " + pages + " pages: " + ids);
+    }
+
+    @DisplayName("JUnit test for findNextPosts - pages sorted by a nullable timestamp, nulls last")
+    @Test
+    public void givenNullableTimestampKey_whenWalkingPages_thenEveryPostOnceInOrder() {
+
+        // given - precondition or setup
+        // the three posts from setup have never been commented
+        List<Long> uncommented = postRepository.findAll(Sort.by("id")).stream().map(Post::getId).toList();
+        List<Long> uncommentedDescending = postRepository.findAll(Sort.by("id").descending()).stream()
+                .map(Post::getId).toList();
+        Post first = post("First commented", "Description of commenting", "Content");
+        first.setLastCommentAt(Instant.parse("2024-01-01T10:00:00Z"));
+        Post tied = post("Also first", "Description of commenting", "Content");
+        tied.setLastCommentAt(Instant.parse("2024-01-01T10:00:00Z"));
+        Post latest = post("Latest commented", "Description of commenting", "Content");
+        latest.setLastCommentAt(Instant.parse("2024-01-02T10:00:00Z"));
+        postRepository.saveAll(List.of(first, tied, latest));
+        entityManager.flush();
+        entityManager.clear();
+
+        // when - action or behaviour that we are going to test
+        List<Long> ascending = walkPages("lastCommentAt", Sort.Direction.ASC, 2);
+        List<Long> descending = walkPages("lastCommentAt", Sort.Direction.DESC, 2);
+
+        // then - verify the output
+        List<Long> expectedAscending = new ArrayList<>(List.of(first.getId(), tied.getId(), latest.getId()));
+        expectedAscending.addAll(uncommented);
+        List<Long> expectedDescending = new ArrayList<>(List.of(latest.getId(), tied.getId(), first.getId()));
+        expectedDescending.addAll(uncommentedDescending);
+        assertThat(ascending).containsExactlyElementsOf(expectedAscending);
+        assertThat(descending).containsExactlyElementsOf(expectedDescending);
+    }
+
+    @DisplayName("JUnit test for findNextPosts - pages sorted by the update time")
+    @Test
+    public void givenTimestampKey_whenWalkingPages_thenEveryPostOnce() {
+
+        // given - precondition or setup
+        // pages are built from rows read back from the database, as they are in a request
+        entityManager.flush();
+        entityManager.clear();
+
+        // when - action or behaviour that we are going to test
+        List<Long> ids = walkPages("updatedAt", Sort.Direction.DESC, 1);
+
+        // then - verify the output
+        assertThat(ids).hasSize(3).doesNotHaveDuplicates();
+    }
+}
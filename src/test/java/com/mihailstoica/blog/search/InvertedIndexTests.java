@@ -0,0 +1,173 @@
+package com.mihailstoica.blog.search;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InvertedIndexTests {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    public void setup() {
+        this.index = new InvertedIndex();
+        this.index.index(1L, InvertedIndex.terms("Spring caching", "Caffeine in front of JPA"));
+        this.index.index(2L, InvertedIndex.terms("Keyset paging", "Seek instead of OFFSET"));
+        this.index.index(3L, InvertedIndex.terms("Spring paging", "Pageable and Slice"));
+    }
+
+    @DisplayName("JUnit test for search - AND, OR, NOT and prefix queries")
+    @Test
+    public void givenIndexedPosts_whenSearch_thenApplyBooleanAndPrefixOperators() {
+
+        // then - verify the output
+        assertThat(index.search("spring paging", 0L, 10)).containsExactly(3L);
+        assertThat(index.search("caffeine OR keyset", 0L, 10)).containsExactly(1L, 2L);
+        assertThat(index.search("spring -paging", 0L, 10)).containsExactly(1L);
+        assertThat(index.search("pag*", 0L, 10)).containsExactly(2L, 3L);
+        assertThat(index.search("-spring", 0L, 10)).isEmpty();
+        assertThat(index.search("pag*", 2L, 10)).containsExactly(3L);
+    }
+
+    @DisplayName("JUnit test for search - prefix expansion merges posting lists")
+    @Test
+    public void givenPrefixMatchingManyTerms_whenSearch_thenMergeWithoutDuplicates() {
+
+        // given - precondition or setup
+        index.index(4L, InvertedIndex.terms("Paged results", "pagination and pager"));
+        index.index(5L, InvertedIndex.terms("Pages"));
+
+        // when - action or behaviour that we are going to test
+        long[] ids = index.search("pag*", 0L, 10);
+
+        // then - verify the output
+        assertThat(ids).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(index.search("spring pag*", 0L, 10)).containsExactly(3L);
+        assertThat(index.search("pag* -pages", 0L, 10)).containsExactly(2L, 3L, 4L);
+    }
+
+    @DisplayName("JUnit test for search - prefix length and expansion limits")
+    @Test
+    public void givenShortOrBroadPrefix_whenSearch_thenRejectOrCapExpansion() {
+
+        // given - precondition or setup
+        for (int i = 0; i < InvertedIndex.MAX_PREFIX_TERMS + 50; i++) {
+            index.index(1000L + i, InvertedIndex.terms(String.format("word%05d", i)));
+        }
+
+        // when - action or behaviour that we are going to test
+        long[] ids = index.search("word*", 0L, Integer.MAX_VALUE);
+
+        // then - verify the output
+        assertThat(ids).hasSize(InvertedIndex.MAX_PREFIX_TERMS);
+        assertThat(ids[ids.length - 1]).isEqualTo(1000L + InvertedIndex.MAX_PREFIX_TERMS - 1);
+        assertThatThrownBy(() -> index.search("wo*", 0L, 10))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @DisplayName("JUnit test for index - re-indexing and removing a document")
+    @Test
+    public void givenIndexedPost_whenReindexOrRemove_thenPostingListsFollow() {
+
+        // when - action or behaviour that we are going to test
+        index.index(1L, InvertedIndex.terms("Hibernate batching"));
+        index.remove(3L);
+
+        // then - verify the output
+        assertThat(index.search("caffeine", 0L, 10)).isEmpty();
+        assertThat(index.search("batching", 0L, 10)).containsExactly(1L);
+        assertThat(index.search("spring", 0L, 10)).isEmpty();
+        assertThat(index.documentCount()).isEqualTo(2);
+    }
+
+    @DisplayName("JUnit test for IndexSnapshots - write and read back")
+    @Test
+    public void givenIndex_whenSnapshotWrittenAndRead_thenSameResults(@TempDir Path directory) throws Exception {
+
+        // given - precondition or setup
+        Path path = directory.resolve("posts.idx");
+        index.index(300L, InvertedIndex.terms("Spring snapshots"));
+
+        // when - action or behaviour that we are going to test
+        IndexSnapshots.write(index, path, 42L);
+        InvertedIndex loaded = new InvertedIndex();
+        long createdAt = IndexSnapshots.read(path, loaded);
+
+        // then - verify the output
+        assertThat(createdAt).isEqualTo(42L);
+        assertThat(loaded.termCount()).isEqualTo(index.termCount());
+        assertThat(loaded.search("spring", 0L, 10)).containsExactly(1L, 3L, 300L);
+        loaded.remove(300L);
+        assertThat(loaded.search("snapshots", 0L, 10)).isEmpty();
+    }
+
+    @DisplayName("JUnit test for search - pages of a common term, intersected and with exclusions")
+    @Test
+    public void givenCommonTerm_whenSearchPageByPage_thenSameIdsAsTheFullResult() {
+
+        // given - precondition or setup
+        // every post mentions java, every third one spring and every fifth one is about kotlin
+        for (long id = 100; id < 10_100; id++) {
+            String title = "java" + (id % 3 == 0 ? " spring" : "") + (id % 5 == 0 ? " kotlin" : "");
+            index.index(id, InvertedIndex.terms(title));
+        }
+        long[] expected = LongStream.range(100, 10_100).filter(id -> id % 3 == 0 && id % 5 != 0).toArray();
+
+        // when - action or behaviour that we are going to test
+        List<Long> paged = new ArrayList<>();
+        long afterId = 0L;
+        for (long[] page = index.search("java spring -kotlin", afterId, 50); page.length > 0;
+             page = index.search("java spring -kotlin", afterId, 50)) {
+            for (long id : page) {
+                paged.add(id);
+            }
+            afterId = page[page.length - 1];
+        }
+
+        // then - verify the output
+        assertThat(paged).containsExactlyElementsOf(LongStream.of(expected).boxed().toList());
+        assertThat(index.search("kotlin OR spring", 9_000L, 3)).containsExactly(9_003L, 9_005L, 9_006L);
+    }
+
+    @DisplayName("JUnit test for LongObjectMap - same contents as a HashMap under random puts and removes")
+    @Test
+    public void givenRandomOperations_whenLongObjectMapUsed_thenMatchesHashMap() {
+
+        // given - precondition or setup
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // when - action or behaviour that we are going to test
+        for (int i = 0; i < 100_000; i++) {
+            // a small key range, so that removes hit existing keys and probe sequences collide
+            long key = random.nextInt(5_000) - 2_500L;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(map.put(key, "value " + i)).isEqualTo(expected.put(key, "value " + i));
+            }
+        }
+
+        // then - verify the output
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        assertThat(LongStream.of(map.keys()).boxed().toList()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+        assertThat(map.get(10_000L)).isNull();
+    }
+}
@@ -0,0 +1,89 @@
+package com.mihailstoica.blog.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedPasswordEncoderTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    public void close() {
+        passwordEncoder.close();
+    }
+
+    @DisplayName("JUnit test for BoundedPasswordEncoder - hashes on the pool and times it")
+    @Test
+    public void givenPassword_whenEncodeAndMatches_thenDelegatesAndRecordsHashTime() {
+
+        // given - precondition or setup
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1, meterRegistry);
+
+        // when - action or behaviour that we are going to test
+        String encoded = passwordEncoder.encode("secret");
+
+        // then - verify the output
+        assertThat(passwordEncoder.matches("secret", encoded)).isTrue();
+        assertThat(passwordEncoder.matches("wrong", encoded)).isFalse();
+        assertThat(meterRegistry.get(BoundedPasswordEncoder.HASH_TIMER).tag("operation", "matches").timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get(BoundedPasswordEncoder.HASH_TIMER).tag("operation", "encode").timer().count())
+                .isEqualTo(1);
+    }
+
+    @DisplayName("JUnit test for BoundedPasswordEncoder - rejects hashes beyond the queue capacity")
+    @Test
+    public void givenFullQueue_whenEncode_thenRejected() throws Exception {
+
+        // given - precondition or setup
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        passwordEncoder = new BoundedPasswordEncoder(blocking, 1, 1, meterRegistry);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("first"));
+        waitFor(() -> meterRegistry.find(BoundedPasswordEncoder.WAIT_TIMER).timer() != null);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("second"));
+        waitFor(() -> meterRegistry.get(BoundedPasswordEncoder.QUEUE_GAUGE).gauge().value() == 1);
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> passwordEncoder.encode("third")).isInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.get(BoundedPasswordEncoder.REJECTED_COUNTER).counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(10, TimeUnit.SECONDS)).startsWith("$2a$04$");
+        assertThat(queued.get(10, TimeUnit.SECONDS)).startsWith("$2a$04$");
+    }
+}
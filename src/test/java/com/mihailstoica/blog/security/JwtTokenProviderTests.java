@@ -0,0 +1,98 @@
+package com.mihailstoica.blog.security;
+
+import com.mihailstoica.blog.exception.BlogApiException;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JwtTokenProviderTests {
+
+    private JwtTokenProvider tokenProvider;
+
+    private Authentication authentication;
+
+    @BeforeEach
+    public void setup() {
+        this.tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", "JWTSecretKey");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 60_000);
+        ReflectionTestUtils.setField(tokenProvider, "claimsCacheEnabled", true);
+        ReflectionTestUtils.setField(tokenProvider, "claimsCacheMaxSize", 100L);
+        tokenProvider.initClaimsCache();
+
+        this.authentication = new UsernamePasswordAuthenticationToken("user@test.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    }
+
+    @DisplayName("JUnit test for getClaimsFromJwt")
+    @Test
+    public void givenToken_whenGetClaimsFromJwt_thenReturnSubject() {
+
+        // given - precondition or setup
+        String token = tokenProvider.generateToken(authentication);
+
+        // when - action or behaviour that we are going to test
+        Claims claims = tokenProvider.getClaimsFromJwt(token);
+
+        // then - verify the output
+        assertThat(claims.getSubject()).isEqualTo(authentication.getName());
+    }
+
+    @DisplayName("JUnit test for getClaimsFromJwt - cached claims")
+    @Test
+    public void givenTokenParsedTwice_whenGetClaimsFromJwt_thenReturnCachedClaims() {
+
+        // given - precondition or setup
+        String token = tokenProvider.generateToken(authentication);
+        Claims first = tokenProvider.getClaimsFromJwt(token);
+
+        // when - action or behaviour that we are going to test
+        Claims second = tokenProvider.getClaimsFromJwt(token);
+
+        // then - verify the output
+        assertThat(second).isSameAs(first);
+    }
+
+    @DisplayName("JUnit test for getUserDetailsFromClaims")
+    @Test
+    public void givenToken_whenGetUserDetailsFromClaims_thenReturnSignedAuthorities() {
+
+        // given - precondition or setup
+        String token = tokenProvider.generateToken(authentication);
+        Claims claims = tokenProvider.getClaimsFromJwt(token);
+
+        // when - action or behaviour that we are going to test
+        UserDetails userDetails = tokenProvider.getUserDetailsFromClaims(claims);
+
+        // then - verify the output
+        assertThat(userDetails.getUsername()).isEqualTo(authentication.getName());
+        assertThat(userDetails.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+    }
+
+    @DisplayName("JUnit test for getClaimsFromJwt - negative scenario")
+    @Test
+    public void givenTamperedToken_whenGetClaimsFromJwt_thenThrowBlogApiException() {
+
+        // given - precondition or setup
+        String token = tokenProvider.generateToken(authentication);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> tokenProvider.getClaimsFromJwt(tampered))
+                .isInstanceOf(BlogApiException.class);
+    }
+}
@@ -0,0 +1,60 @@
+package com.mihailstoica.blog.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenRevocationListTests {
+
+    private static Claims token(String subject, long issuedAt) {
+        return Jwts.claims().setSubject(subject).setIssuedAt(new Date(issuedAt));
+    }
+
+    @DisplayName("JUnit test for TokenRevocationList - a revoked subject's older tokens are revoked")
+    @Test
+    public void givenRevokedSubject_whenIsRevoked_thenOnlyItsOlderTokensAreRevoked() {
+
+        // given - precondition or setup
+        TokenRevocationList revocationList = new TokenRevocationList(Duration.ofHours(1).toMillis(), 10);
+        long issuedAt = System.currentTimeMillis() - 1000;
+
+        // when - action or behaviour that we are going to test
+        revocationList.revoke("alice");
+
+        // then - verify the output
+        assertThat(revocationList.isRevoked(token("alice", issuedAt))).isTrue();
+        assertThat(revocationList.isRevoked(token("bob", issuedAt))).isFalse();
+        assertThat(revocationList.isRevoked(token("alice", issuedAt + 5000))).isFalse();
+    }
+
+    @DisplayName("JUnit test for TokenRevocationList - overflowing the list revokes every older token")
+    @Test
+    public void givenFullList_whenRevoke_thenFailClosedAndKeepEarlierRevocations() {
+
+        // given - precondition or setup
+        TokenRevocationList revocationList = new TokenRevocationList(Duration.ofHours(1).toMillis(), 2);
+        long issuedAt = System.currentTimeMillis() - 1000;
+        revocationList.revoke("alice");
+        revocationList.revoke("bob");
+        boolean carolRevokedBeforeOverflow = revocationList.isRevoked(token("carol", issuedAt));
+
+        // when - action or behaviour that we are going to test
+        revocationList.revoke("dave");
+
+        // then - verify the output
+        assertThat(carolRevokedBeforeOverflow).isFalse();
+        // nothing revoked is trusted again, at the price of revoking tokens that were not
+        assertThat(revocationList.isRevoked(token("alice", issuedAt))).isTrue();
+        assertThat(revocationList.isRevoked(token("bob", issuedAt))).isTrue();
+        assertThat(revocationList.isRevoked(token("dave", issuedAt))).isTrue();
+        assertThat(revocationList.isRevoked(token("carol", issuedAt))).isTrue();
+        // tokens issued after the overflow are trusted
+        assertThat(revocationList.isRevoked(token("carol", issuedAt + 5000))).isFalse();
+    }
+}
@@ -0,0 +1,243 @@
+package com.mihailstoica.blog.security;
+
+import com.mihailstoica.blog.config.HibernateListenerConfig;
+import com.mihailstoica.blog.entity.Role;
+import com.mihailstoica.blog.entity.User;
+import com.mihailstoica.blog.repository.RoleRepository;
+import com.mihailstoica.blog.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the eviction runs after commit, so the test methods commit real transactions instead of the
+// usual rolled back test transaction, and clean up after themselves
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({UserCacheInvalidationListener.class, CaffeineUserCache.class, TokenRevocationList.class,
+        HibernateListenerConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserCacheInvalidationListenerTests {
+
+    private static final String EMAIL = "alice@test.com";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CaffeineUserCache userCache;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.userId = transactionTemplate.execute(status -> {
+            Role admin = new Role();
+            admin.setName("ROLE_ADMIN");
+            roleRepository.save(admin);
+
+            Role user = new Role();
+            user.setName("ROLE_USER");
+            User alice = new User();
+            alice.setName("Alice");
+            alice.setUsername("alice");
+            alice.setEmail(EMAIL);
+            alice.setPassword("password");
+            alice.setRoles(new HashSet<>(Set.of(user)));
+            return userRepository.save(alice).getId();
+        });
+
+        userCache.putUserInCache(org.springframework.security.core.userdetails.User.withUsername(EMAIL)
+                .password("password")
+                .authorities("ROLE_USER")
+                .build());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        // the roles go with the user (cascade ALL)
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+        userCache.removeAllUsersFromCache();
+    }
+
+    // iat has second precision and a token issued in the same second as a change counts as revoked,
+    // so wait for the next second to get past whatever the previous test (or its cleanup) revoked
+    private static Claims issuedNow(String subject) throws InterruptedException {
+        Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+        return Jwts.claims().setSubject(subject).setIssuedAt(new Date());
+    }
+
+    private void grantAdmin(User user) {
+        user.getRoles().add(roleRepository.findByName("ROLE_ADMIN").orElseThrow());
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - a committed role grant evicts the user")
+    @Test
+    public void givenCachedUser_whenRoleGrantedAndCommitted_thenEvictUser() {
+
+        // given - precondition or setup
+        assertThat(userCache.getUserFromCache(EMAIL)).isNotNull();
+
+        // when - action or behaviour that we are going to test
+        // only user_roles changes, the users row stays as it is
+        transactionTemplate.executeWithoutResult(status ->
+                grantAdmin(userRepository.findById(userId).orElseThrow()));
+
+        // then - verify the output
+        assertThat(userCache.getUserFromCache(EMAIL)).isNull();
+        assertThat(userRepository.findById(userId).orElseThrow().getRoles())
+                .extracting(Role::getName).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - replacing the roles evicts the user")
+    @Test
+    public void givenCachedUser_whenRolesReplacedAndCommitted_thenEvictUser() {
+
+        // given - precondition or setup
+        assertThat(userCache.getUserFromCache(EMAIL)).isNotNull();
+
+        // when - action or behaviour that we are going to test
+        transactionTemplate.executeWithoutResult(status ->
+                userRepository.findById(userId).orElseThrow()
+                        .setRoles(new HashSet<>(Set.of(roleRepository.findByName("ROLE_ADMIN").orElseThrow()))));
+
+        // then - verify the output
+        assertThat(userCache.getUserFromCache(EMAIL)).isNull();
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - nothing is evicted before the commit")
+    @Test
+    public void givenCachedUser_whenRoleGrantedAndFlushed_thenEvictOnlyAfterCommit() {
+
+        // given - precondition or setup
+        assertThat(userCache.getUserFromCache(EMAIL)).isNotNull();
+
+        // when - action or behaviour that we are going to test
+        UserDetails beforeCommit = transactionTemplate.execute(status -> {
+            grantAdmin(userRepository.findById(userId).orElseThrow());
+            userRepository.flush();
+            return userCache.getUserFromCache(EMAIL);
+        });
+
+        // then - verify the output
+        // a login racing the transaction would otherwise cache the old roles again
+        assertThat(beforeCommit).isNotNull();
+        assertThat(userCache.getUserFromCache(EMAIL)).isNull();
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - a rolled back change keeps the user cached")
+    @Test
+    public void givenCachedUser_whenRoleGrantRolledBack_thenKeepUser() {
+
+        // given - precondition or setup
+        assertThat(userCache.getUserFromCache(EMAIL)).isNotNull();
+
+        // when - action or behaviour that we are going to test
+        transactionTemplate.executeWithoutResult(status -> {
+            grantAdmin(userRepository.findById(userId).orElseThrow());
+            userRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        // then - verify the output
+        assertThat(userCache.getUserFromCache(EMAIL)).isNotNull();
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - a committed user update evicts the user")
+    @Test
+    public void givenCachedUser_whenUserUpdatedAndCommitted_thenEvictUser() {
+
+        // given - precondition or setup
+        assertThat(userCache.getUserFromCache(EMAIL)).isNotNull();
+
+        // when - action or behaviour that we are going to test
+        transactionTemplate.executeWithoutResult(status ->
+                userRepository.findById(userId).orElseThrow().setName("Alice Smith"));
+
+        // then - verify the output
+        assertThat(userCache.getUserFromCache(EMAIL)).isNull();
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - a committed role grant revokes the user's tokens")
+    @Test
+    public void givenIssuedToken_whenRoleGrantedAndCommitted_thenRevokeToken() throws InterruptedException {
+
+        // given - precondition or setup
+        Claims token = issuedNow(EMAIL);
+        Claims otherToken = issuedNow("bob@test.com");
+        assertThat(revocationList.isRevoked(token)).isFalse();
+
+        // when - action or behaviour that we are going to test
+        transactionTemplate.executeWithoutResult(status ->
+                grantAdmin(userRepository.findById(userId).orElseThrow()));
+
+        // then - verify the output
+        // the token still carries the old authorities signed in at login
+        assertThat(revocationList.isRevoked(token)).isTrue();
+        assertThat(revocationList.isRevoked(otherToken)).isFalse();
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - a rolled back role grant revokes nothing")
+    @Test
+    public void givenIssuedToken_whenRoleGrantRolledBack_thenKeepToken() throws InterruptedException {
+
+        // given - precondition or setup
+        Claims token = issuedNow(EMAIL);
+
+        // when - action or behaviour that we are going to test
+        transactionTemplate.executeWithoutResult(status -> {
+            grantAdmin(userRepository.findById(userId).orElseThrow());
+            userRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        // then - verify the output
+        assertThat(revocationList.isRevoked(token)).isFalse();
+    }
+
+    @DisplayName("JUnit test for UserCacheInvalidationListener - changing a role revokes every token")
+    @Test
+    public void givenIssuedTokens_whenRoleRenamedAndCommitted_thenRevokeAllTokens() throws InterruptedException {
+
+        // given - precondition or setup
+        Claims token = issuedNow(EMAIL);
+        Claims otherToken = issuedNow("bob@test.com");
+
+        // when - action or behaviour that we are going to test
+        transactionTemplate.executeWithoutResult(status ->
+                roleRepository.findByName("ROLE_ADMIN").orElseThrow().setName("ROLE_OWNER"));
+
+        // then - verify the output
+        assertThat(revocationList.isRevoked(token)).isTrue();
+        assertThat(revocationList.isRevoked(otherToken)).isTrue();
+    }
+}
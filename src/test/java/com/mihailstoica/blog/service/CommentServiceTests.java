@@ -2,32 +2,53 @@ package com.mihailstoica.blog.service;
 
 import com.mihailstoica.blog.entity.Comment;
 import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.event.CommentCreatedEvent;
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.payload.CommentBatchResponse;
+import com.mihailstoica.blog.payload.CommentBatchResult;
 import com.mihailstoica.blog.payload.CommentDto;
 import com.mihailstoica.blog.payload.CommentResponse;
+import com.mihailstoica.blog.payload.CommentSearchHit;
+import com.mihailstoica.blog.payload.SearchResponse;
 import com.mihailstoica.blog.repository.CommentRepository;
 import com.mihailstoica.blog.repository.PostRepository;
 import com.mihailstoica.blog.service.impl.CommentServiceImpl;
 import com.mihailstoica.blog.service.impl.PostServiceImpl;
+import com.mihailstoica.blog.utils.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static com.mihailstoica.blog.utils.Constants.MAX_PAGE_LIMIT;
+import static com.mihailstoica.blog.utils.Constants.SEARCH_RANK;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 public class CommentServiceTests {
@@ -47,6 +68,12 @@ public class CommentServiceTests {
     @Mock
     private Page<Comment> comments;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private Comment comment;
 
     private CommentDto commentDto;
@@ -83,12 +110,102 @@ public class CommentServiceTests {
         // given - precondition or setup
 
         // stub methods
-        given(postRepository.findById(post.getId())).willReturn(Optional.of(post));
+        given(postRepository.addComments(eq(post.getId()), eq(1L), any(Instant.class))).willReturn(1);
+        given(postRepository.getReferenceById(post.getId())).willReturn(post);
         given(commentRepository.save(comment)).willReturn(comment);
         // when - action or behaviour that we are going to test
         CommentDto savedCommentDto = commentService.createComment(post.getId(), commentDto);
         // then - verify the output
         assertThat(savedCommentDto).isEqualTo(commentDto);
+        verify(eventPublisher).publishEvent(new CommentCreatedEvent(post.getId(), savedCommentDto));
+    }
+
+    @DisplayName("JUnit test for createComments - batch with an invalid item")
+    @Test
+    public void givenCommentDtosWithInvalidItem_whenCreateComments_thenReturnPerItemResults() {
+
+        // given - precondition or setup
+        ReflectionTestUtils.setField(commentService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(commentService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(commentService, "batchChunkSize", 500);
+        ReflectionTestUtils.setField(commentService, "batchMaxItems", 10);
+
+        CommentDto validCommentDto = new CommentDto();
+        validCommentDto.setName("Test-name");
+        validCommentDto.setEmail("testemail@test.com");
+        validCommentDto.setBody("test body of the valid comment");
+
+        CommentDto invalidCommentDto = new CommentDto();
+        invalidCommentDto.setName("Test-name");
+        invalidCommentDto.setEmail("not-an-email");
+        invalidCommentDto.setBody("test body of the invalid comment");
+
+        // stub methods
+        given(postRepository.existsById(post.getId())).willReturn(true);
+        given(postRepository.getReferenceById(post.getId())).willReturn(post);
+        given(commentRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Comment> saved = new ArrayList<>(invocation.getArgument(0));
+            saved.forEach(savedComment -> savedComment.setId(42L));
+            return saved;
+        });
+
+        // when - action or behaviour that we are going to test
+        CommentBatchResponse response = commentService.createComments(post.getId(),
+                List.of(validCommentDto, invalidCommentDto));
+
+        // then - verify the output
+        assertThat(response.getCreated()).isEqualTo(1);
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(response.getResults().get(0).getId()).isEqualTo(42L);
+        assertThat(response.getResults().get(1).getStatus()).isEqualTo(CommentBatchResult.INVALID);
+        assertThat(response.getResults().get(1).getErrors()).containsKey("email");
+        verify(entityManager, times(1)).flush();
+        verify(postRepository, times(1)).addComments(eq(post.getId()), eq(1L), any(Instant.class));
+
+        // only the created comment is published to the stream subscribers
+        ArgumentCaptor<CommentCreatedEvent> event = ArgumentCaptor.forClass(CommentCreatedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertThat(event.getValue().postId()).isEqualTo(post.getId());
+        assertThat(event.getValue().comment().getId()).isEqualTo(42L);
+        assertThat(event.getValue().comment().getBody()).isEqualTo(validCommentDto.getBody());
+    }
+
+    @DisplayName("JUnit test for createComments - batch with a null item")
+    @Test
+    public void givenCommentDtosWithNullItem_whenCreateComments_thenReportNullItemAsInvalid() {
+
+        // given - precondition or setup
+        ReflectionTestUtils.setField(commentService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(commentService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(commentService, "batchChunkSize", 500);
+        ReflectionTestUtils.setField(commentService, "batchMaxItems", 10);
+
+        CommentDto validCommentDto = new CommentDto();
+        validCommentDto.setName("Test-name");
+        validCommentDto.setEmail("testemail@test.com");
+        validCommentDto.setBody("test body of the valid comment");
+
+        List<CommentDto> commentDtos = new ArrayList<>();
+        commentDtos.add(null);
+        commentDtos.add(validCommentDto);
+
+        // stub methods
+        given(postRepository.existsById(post.getId())).willReturn(true);
+        given(postRepository.getReferenceById(post.getId())).willReturn(post);
+        given(commentRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+
+        // when - action or behaviour that we are going to test
+        CommentBatchResponse response = commentService.createComments(post.getId(), commentDtos);
+
+        // then - verify the output
+        assertThat(response.getCreated()).isEqualTo(1);
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(response.getResults().get(0).getIndex()).isEqualTo(0);
+        assertThat(response.getResults().get(0).getStatus()).isEqualTo(CommentBatchResult.INVALID);
+        assertThat(response.getResults().get(0).getErrors()).containsKey("comment");
+        assertThat(response.getResults().get(1).getStatus()).isEqualTo(CommentBatchResult.CREATED);
     }
 
     @DisplayName("JUnit test for getAllPosts method")
@@ -134,7 +251,7 @@ public class CommentServiceTests {
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
 
         // stub methods
-        given(commentRepository.findAll(pageable)).willReturn(comments);
+        given(commentRepository.findByPostId(post.getId(), pageable)).willReturn(comments);
         given(comments.getContent()).willReturn(commentList);
 
         // when - action or behaviour that we are going to test
@@ -159,8 +276,7 @@ public class CommentServiceTests {
         Long commentId = comment.getId();
 
         // stub methods
-        given(postRepository.findById(postId)).willReturn(Optional.of(post));
-        given(commentRepository.findById(commentId)).willReturn(Optional.of(comment));
+        given(commentRepository.findByIdAndPostId(commentId, postId)).willReturn(Optional.of(comment));
 
         // when - action or behaviour that we are going to test
         CommentDto commentDtoReturned = commentService.getCommentById(postId, commentId);
@@ -178,8 +294,7 @@ public class CommentServiceTests {
         Long commentId = comment.getId();
 
         // stub methods
-        given(postRepository.findById(postId)).willReturn(Optional.of(post));
-        given(commentRepository.findById(commentId)).willReturn(Optional.of(comment));
+        given(commentRepository.findByIdAndPostId(commentId, postId)).willReturn(Optional.of(comment));
         given(commentRepository.save(comment)).willReturn(comment);
 
         // when - action or behaviour that we are going to test
@@ -198,15 +313,114 @@ public class CommentServiceTests {
         Long commentId = comment.getId();
 
         // stub methods
-        given(postRepository.findById(postId)).willReturn(Optional.of(post));
-        given(commentRepository.findById(commentId)).willReturn(Optional.of(comment));
-        willDoNothing().given(commentRepository).delete(comment);
+        given(commentRepository.deleteByIdAndPostId(commentId, postId)).willReturn(1);
 
         // when - action or behaviour that we are going to test
         commentService.deleteComment(postId, commentId);
 
         // then - verify the output
-        verify(commentRepository, times(1)).delete(comment);
+        verify(commentRepository, times(1)).deleteByIdAndPostId(commentId, postId);
+        verify(postRepository, times(1)).removeComment(eq(postId), any(Instant.class));
+    }
+
+    @DisplayName("JUnit test for getCommentById - comment of another post")
+    @Test
+    public void givenCommentOfAnotherPost_whenGetCommentById_thenThrowBlogApiException() {
+
+        // given - precondition or setup
+        Long postId = 2L;
+        Long commentId = comment.getId();
+
+        // stub methods
+        given(commentRepository.findByIdAndPostId(commentId, postId)).willReturn(Optional.empty());
+        given(postRepository.existsById(postId)).willReturn(true);
+        given(commentRepository.existsById(commentId)).willReturn(true);
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> commentService.getCommentById(postId, commentId))
+                .isInstanceOf(BlogApiException.class)
+                .hasMessage("Comment does not belong to post");
+    }
+
+    @DisplayName("JUnit test for getCommentsByPostIdAfter method - limit below 1")
+    @Test
+    public void givenNonPositiveLimit_whenGetCommentsByPostIdAfter_thenThrowBlogApiException() {
+
+        // given - precondition or setup
+        Long postId = post.getId();
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> commentService.getCommentsByPostIdAfter(postId, null, 0, "id", "asc"))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> commentService.getCommentsByPostIdAfter(postId, null, -1, "id", "asc"))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(commentRepository);
+    }
+
+    @DisplayName("JUnit test for getCommentsByPostIdAfter method - limit above the maximum")
+    @Test
+    public void givenLimitAboveMaximum_whenGetCommentsByPostIdAfter_thenClampLimit() {
+
+        // given - precondition or setup
+        Long postId = post.getId();
+
+        // stub methods
+        given(commentRepository.findNextCommentsByPostId(postId, "id", Sort.Direction.ASC, null, MAX_PAGE_LIMIT))
+                .willReturn(List.of(comment));
+
+        // when - action or behaviour that we are going to test
+        CommentResponse page = commentService.getCommentsByPostIdAfter(postId, null, 1_000, "id", "asc");
+
+        // then - verify the output
+        assertThat(page.getPageSize()).isEqualTo(MAX_PAGE_LIMIT);
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.isLast()).isTrue();
+    }
+
+    @DisplayName("JUnit test for searchCommentsByPostId method - limit below 1")
+    @Test
+    public void givenNonPositiveLimit_whenSearchCommentsByPostId_thenThrowBlogApiException() {
+
+        // given - precondition or setup
+        Long postId = post.getId();
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> commentService.searchCommentsByPostId(postId, "body", null, 0))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(commentRepository);
+    }
+
+    @DisplayName("JUnit test for searchCommentsByPostId method")
+    @Test
+    public void givenMatchingComments_whenSearchCommentsByPostId_thenReturnFirstPageAndNextCursor() {
+
+        // given - precondition or setup
+        Long postId = post.getId();
+        String query = "body";
+        int limit = 1;
+
+        CommentSearchHit hit1 = new CommentSearchHit(1L, "name 1", "one@test", "first body", 0.9f);
+        CommentSearchHit hit2 = new CommentSearchHit(2L, "name 2", "two@test", "second body", 0.5f);
+
+        // stub methods - the repository returns limit + 1 hits when another page exists
+        given(commentRepository.searchCommentsByPostId(postId, query, null, limit)).willReturn(List.of(hit1, hit2));
+
+        // when - action or behaviour that we are going to test
+        SearchResponse<CommentSearchHit> page = commentService.searchCommentsByPostId(postId, query, null, limit);
+
+        // then - verify the output
+        assertThat(page.getContent()).containsExactly(hit1);
+        assertThat(page.getPageSize()).isEqualTo(limit);
+        assertThat(page.isLast()).isFalse();
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor(), SEARCH_RANK);
+        assertThat(cursor.getId()).isEqualTo(hit1.getId());
+        assertThat(cursor.getDirection()).isEqualTo(Sort.Direction.DESC);
     }
 
 }
@@ -0,0 +1,198 @@
+package com.mihailstoica.blog.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mihailstoica.blog.config.CacheConfig;
+import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.payload.PostResponse;
+import com.mihailstoica.blog.repository.CommentRepository;
+import com.mihailstoica.blog.repository.PostRepository;
+import com.mihailstoica.blog.service.impl.PostServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.persistence.EntityManagerFactory;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static com.mihailstoica.blog.config.CacheConfig.POSTS_CACHE;
+import static com.mihailstoica.blog.config.CacheConfig.POST_PAGES_CACHE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// the post service behind the cache proxy, with the spring.cache.* settings of application.properties;
+// the repositories are mocks, so their invocations count the cache misses
+@SpringBootTest(classes = {CacheConfig.class, PostServiceImpl.class}, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class PostServiceCachingTests {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private PostRepository postRepository;
+
+    @MockBean
+    private CommentRepository commentRepository;
+
+    @MockBean
+    private Validator validator;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    // for the @PersistenceContext of the service
+    @MockBean
+    private EntityManagerFactory entityManagerFactory;
+
+    private Post post;
+
+    @BeforeEach
+    public void setup() {
+        this.post = new Post();
+        this.post.setId(1L);
+        this.post.setTitle("Title");
+        this.post.setDescription("Description");
+        this.post.setContent("Content");
+        this.post.setCommentCount(2);
+        this.post.setLastCommentAt(Instant.parse("2024-01-01T00:00:00Z"));
+        given(postRepository.findById(1L)).willReturn(Optional.of(post));
+    }
+
+    @AfterEach
+    public void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    private PostDto postDto(String title) {
+        PostDto postDto = new PostDto();
+        postDto.setTitle(title);
+        postDto.setDescription("Description");
+        postDto.setContent("Content");
+        return postDto;
+    }
+
+    @DisplayName("JUnit test for getPostById - the second read is served from the cache")
+    @Test
+    public void givenCachedPost_whenGetPostById_thenRepositoryIsReadOnce() {
+
+        // given - precondition or setup
+        PostDto first = postService.getPostById(1L);
+
+        // when - action or behaviour that we are going to test
+        PostDto second = postService.getPostById(1L);
+
+        // then - verify the output
+        verify(postRepository, times(1)).findById(1L);
+        assertThat(second).isEqualTo(first);
+        assertThat(second.getLastCommentAt()).isEqualTo(post.getLastCommentAt());
+        assertThat(cacheManager.getCache(POSTS_CACHE).get(1L)).isNotNull();
+    }
+
+    @DisplayName("JUnit test for getPostById - every caller gets its own copy of the cached post")
+    @Test
+    public void givenCachedPost_whenCallerChangesResult_thenCacheIsUnchanged() {
+
+        // given - precondition or setup
+        PostDto first = postService.getPostById(1L);
+
+        // when - action or behaviour that we are going to test
+        first.setTitle("Changed by the first caller");
+        PostDto second = postService.getPostById(1L);
+
+        // then - verify the output
+        verify(postRepository, times(1)).findById(1L);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTitle()).isEqualTo("Title");
+    }
+
+    @DisplayName("JUnit test for updatePost - the cached post and pages are evicted")
+    @Test
+    public void givenCachedPost_whenUpdatePost_thenNextReadGoesToRepository() {
+
+        // given - precondition or setup
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("id").ascending());
+        given(postRepository.findAll(pageable)).willReturn(new PageImpl<>(List.of(post), pageable, 1));
+        given(postRepository.save(any(Post.class))).willAnswer(invocation -> invocation.getArgument(0));
+        postService.getPostById(1L);
+        postService.getAllPosts(0, 10, "id", "asc");
+
+        // when - action or behaviour that we are going to test
+        postService.updatePost(postDto("New title"), 1L);
+        PostDto updated = postService.getPostById(1L);
+        PostResponse page = postService.getAllPosts(0, 10, "id", "asc");
+
+        // then - verify the output
+        // one read for each cache fill and one by the update itself
+        verify(postRepository, times(3)).findById(1L);
+        verify(postRepository, times(2)).findAll(pageable);
+        assertThat(updated.getTitle()).isEqualTo("New title");
+        assertThat(page.getContent()).extracting(PostDto::getTitle).containsExactly("New title");
+    }
+
+    @DisplayName("JUnit test for deletePostById - the cached post and pages are evicted")
+    @Test
+    public void givenCachedPost_whenDeletePostById_thenEntriesAreEvicted() {
+
+        // given - precondition or setup
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("id").ascending());
+        given(postRepository.findAll(pageable)).willReturn(new PageImpl<>(List.of(post), pageable, 1));
+        given(postRepository.deletePostById(1L)).willReturn(1);
+        postService.getPostById(1L);
+        postService.getAllPosts(0, 10, "id", "asc");
+
+        // when - action or behaviour that we are going to test
+        postService.deletePostById(1L);
+
+        // then - verify the output
+        assertThat(cacheManager.getCache(POSTS_CACHE).get(1L)).isNull();
+        assertThat(((Cache<?, ?>) cacheManager.getCache(POST_PAGES_CACHE)
+                .getNativeCache()).estimatedSize()).isZero();
+    }
+
+    @DisplayName("JUnit test for updatePost - inside a transaction the eviction waits for the commit")
+    @Test
+    public void givenCachedPostAndTransaction_whenUpdatePost_thenEvictAfterCommit() {
+
+        // given - precondition or setup
+        given(postRepository.save(any(Post.class))).willAnswer(invocation -> invocation.getArgument(0));
+        postService.getPostById(1L);
+
+        // when - action or behaviour that we are going to test
+        // the transaction manager is a mock, so the transaction's synchronization is driven by hand
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            postService.updatePost(postDto("New title"), 1L);
+            assertThat(cacheManager.getCache(POSTS_CACHE).get(1L)).isNotNull();
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // then - verify the output
+        assertThat(cacheManager.getCache(POSTS_CACHE).get(1L)).isNull();
+    }
+}
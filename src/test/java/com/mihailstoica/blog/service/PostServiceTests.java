@@ -1,10 +1,22 @@
 package com.mihailstoica.blog.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mihailstoica.blog.entity.Post;
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.exception.ResourceNotFoundException;
 import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.payload.PostExcerpt;
+import com.mihailstoica.blog.payload.PostImportResponse;
 import com.mihailstoica.blog.payload.PostResponse;
+import com.mihailstoica.blog.payload.PostSearchHit;
+import com.mihailstoica.blog.payload.PostSummaryDto;
+import com.mihailstoica.blog.payload.PostSummaryResponse;
+import com.mihailstoica.blog.payload.SearchResponse;
+import com.mihailstoica.blog.repository.CommentRepository;
 import com.mihailstoica.blog.repository.PostRepository;
+import com.mihailstoica.blog.search.PostSearchIndex;
 import com.mihailstoica.blog.service.impl.PostServiceImpl;
+import com.mihailstoica.blog.utils.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,17 +24,35 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static com.mihailstoica.blog.utils.Constants.MAX_PAGE_LIMIT;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,12 +61,24 @@ public class PostServiceTests {
     @Mock
     private PostRepository postRepository;
 
+    @Mock
+    private CommentRepository commentRepository;
+
     @InjectMocks
     private PostServiceImpl postService;
 
     @Mock
     private Page<Post> posts;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ObjectProvider<PostSearchIndex> postSearchIndex;
+
     private Post post;
 
     private PostDto postDto;
@@ -127,6 +169,146 @@ public class PostServiceTests {
         assertThat(savedPostsDto.isLast()).isEqualTo(this.posts.isLast());
     }
 
+    @DisplayName("JUnit test for getPostsAfter method - cursor mode")
+    @Test
+    public void givenLimitAndNoCursor_whenGetPostsAfter_thenReturnFirstPageAndNextCursor() {
+
+        // given - precondition or setup
+        int limit = 1;
+        String sortBy = "id";
+        String sortDir = "asc";
+
+        Post post1 = new Post();
+        post1.setId(1L);
+        post1.setTitle("Title 1");
+        post1.setDescription("Description of post 1");
+        post1.setContent("Content of post 1");
+
+        Post post2 = new Post();
+        post2.setId(2L);
+        post2.setTitle("Title 2");
+        post2.setDescription("Description of post 2");
+        post2.setContent("Content of post 2");
+
+        // the repository returns limit + 1 rows when another page exists
+        given(postRepository.findNextPosts(sortBy, Sort.Direction.ASC, null, limit))
+                .willReturn(List.of(post1, post2));
+
+        // when - action or behaviour that we are going to test
+        PostResponse firstPage = postService.getPostsAfter(null, limit, sortBy, sortDir);
+
+        // then - verify the output
+        assertThat(firstPage.getContent()).hasSize(1);
+        assertThat(firstPage.getContent().get(0).getId()).isEqualTo(post1.getId());
+        assertThat(firstPage.isLast()).isFalse();
+        assertThat(firstPage.getTotalElements()).isEqualTo(-1);
+        assertThat(KeysetCursor.decode(firstPage.getNextCursor()).getId()).isEqualTo(post1.getId());
+        verify(postRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @DisplayName("JUnit test for getPostsAfter method - limit below 1")
+    @Test
+    public void givenNonPositiveLimit_whenGetPostsAfter_thenThrowBlogApiException() {
+
+        // given - precondition or setup
+        String sortBy = "id";
+        String sortDir = "asc";
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> postService.getPostsAfter(null, 0, sortBy, sortDir))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> postService.getPostsAfter(null, -5, sortBy, sortDir))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(postRepository);
+    }
+
+    @DisplayName("JUnit test for getPostsAfter method - limit above the maximum")
+    @Test
+    public void givenLimitAboveMaximum_whenGetPostsAfter_thenClampLimit() {
+
+        // given - precondition or setup
+        String sortBy = "id";
+        String sortDir = "asc";
+
+        // stub methods
+        given(postRepository.findNextPosts(sortBy, Sort.Direction.ASC, null, MAX_PAGE_LIMIT))
+                .willReturn(List.of());
+
+        // when - action or behaviour that we are going to test
+        PostResponse page = postService.getPostsAfter(null, 10_000, sortBy, sortDir);
+
+        // then - verify the output
+        assertThat(page.getPageSize()).isEqualTo(MAX_PAGE_LIMIT);
+        assertThat(page.isLast()).isTrue();
+        verify(postRepository).findNextPosts(sortBy, Sort.Direction.ASC, null, MAX_PAGE_LIMIT);
+    }
+
+    @DisplayName("JUnit test for searchPosts method - limit below 1")
+    @Test
+    public void givenNonPositiveLimit_whenSearchPosts_thenThrowBlogApiException() {
+
+        // given - precondition or setup
+        String query = "title";
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> postService.searchPosts(query, null, 0))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(postRepository, postSearchIndex);
+    }
+
+    @DisplayName("JUnit test for searchPosts method - index path, limit above the maximum")
+    @Test
+    public void givenSearchIndexAndLimitAboveMaximum_whenSearchPosts_thenAskIndexForClampedLimit() {
+
+        // given - precondition or setup
+        String query = "title";
+        PostSearchIndex searchIndex = mock(PostSearchIndex.class);
+
+        // stub methods
+        given(postSearchIndex.getIfAvailable()).willReturn(searchIndex);
+        given(searchIndex.search(query, 0L, MAX_PAGE_LIMIT + 1)).willReturn(new long[0]);
+
+        // when - action or behaviour that we are going to test
+        SearchResponse<PostSearchHit> page = postService.searchPosts(query, null, Integer.MAX_VALUE);
+
+        // then - verify the output
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getPageSize()).isEqualTo(MAX_PAGE_LIMIT);
+        assertThat(page.isLast()).isTrue();
+        verify(searchIndex).search(query, 0L, MAX_PAGE_LIMIT + 1);
+    }
+
+    @DisplayName("JUnit test for getPostSummaries method - with excerpt")
+    @Test
+    public void givenExcerptLength_whenGetPostSummaries_thenReturnSummariesWithExcerpt() {
+
+        // given - precondition or setup
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("id").ascending());
+        PostExcerpt postExcerpt = mock(PostExcerpt.class);
+        given(postExcerpt.getId()).willReturn(1L);
+        given(postExcerpt.getTitle()).willReturn("Title");
+        given(postExcerpt.getDescription()).willReturn("Description");
+        given(postExcerpt.getCommentCount()).willReturn(3L);
+        given(postExcerpt.getExcerpt()).willReturn("Cont");
+
+        // stub method for postRepository.findAllExcerpts
+        given(postRepository.findAllExcerpts(4, pageable))
+                .willReturn(new PageImpl<>(List.of(postExcerpt), pageable, 1));
+
+        // when - action or behaviour that we are going to test
+        PostSummaryResponse response = postService.getPostSummaries(0, 10, "id", "asc", 4);
+
+        // then - verify the output
+        assertThat(response.getContent()).containsExactly(new PostSummaryDto(1L, "Title", "Description", 3L, null, "Cont"));
+        assertThat(response.getTotalElements()).isEqualTo(1);
+        verify(postRepository, never()).findAllProjectedBy(any(Pageable.class));
+    }
+
     @DisplayName("JUnit test for getPostById method")
     @Test
     public void givenPostId_whenGetPostById_thenReturnPostDtoObject() {
@@ -173,19 +355,100 @@ public class PostServiceTests {
     public void givenPostId_whenDeletePostById_thenNothing() {
 
         // given - precondition or setup
-        Long postId = post.getId();
+        Long postId = 1L;
 
-        // stub method for postRepository.findById
-        given(postRepository.findById(postId)).willReturn(Optional.of(post));
-
-        // stub method for postRepository.deleteById
-        willDoNothing().given(postRepository).delete(post);
+        // stub methods for the bulk deletes
+        given(commentRepository.deleteByPostId(postId)).willReturn(200_000);
+        given(postRepository.deletePostById(postId)).willReturn(1);
 
         // when - action or behaviour that we are going to test
         postService.deletePostById(postId);
 
         // then - verify the output
-        verify(postRepository, times(1)).delete(post);
+        verify(commentRepository, times(1)).deleteByPostId(postId);
+        verify(postRepository, times(1)).deletePostById(postId);
+        verify(postRepository, never()).delete(any(Post.class));
+    }
+
+    @DisplayName("JUnit test for deletePostById - soft delete")
+    @Test
+    public void givenSoftDeleteEnabled_whenDeletePostById_thenOnlyMarkThePost() {
+
+        // given - precondition or setup
+        ReflectionTestUtils.setField(postService, "softDelete", true);
+        given(postRepository.softDeletePostById(eq(1L), any(Instant.class))).willReturn(1);
+
+        // when - action or behaviour that we are going to test
+        postService.deletePostById(1L);
+
+        // then - verify the output
+        verify(commentRepository, never()).deleteByPostId(any());
+        verify(postRepository, never()).deletePostById(any());
+    }
+
+    @DisplayName("JUnit test for deletePostById - missing post")
+    @Test
+    public void givenMissingPostId_whenDeletePostById_thenThrowResourceNotFound() {
+
+        // given - precondition or setup
+        given(postRepository.deletePostById(99L)).willReturn(0);
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> postService.deletePostById(99L)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @DisplayName("JUnit test for exportPosts - one JSON document per line")
+    @Test
+    public void givenPosts_whenExportPosts_thenWriteNdjsonAndDetachEachPost() throws Exception {
+
+        // given - precondition or setup
+        ReflectionTestUtils.setField(postService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(postService, "entityManager", entityManager);
+        post.setId(1L);
+
+        // stub method for postRepository.streamAll
+        given(postRepository.streamAll()).willReturn(Stream.of(post));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when - action or behaviour that we are going to test
+        postService.exportPosts(outputStream);
+
+        // then - verify the output
+        assertThat(outputStream.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"id\":1,\"title\":\"Title\",\"description\":\"Description\",\"content\":\"Content\","
+                        + "\"commentCount\":0,\"lastCommentAt\":null,\"version\":0,\"updatedAt\":null}\n");
+        verify(entityManager, times(1)).detach(post);
+    }
+
+    @DisplayName("JUnit test for importPosts - null and malformed lines are rejected")
+    @Test
+    public void givenNdjsonWithNullLine_whenImportPosts_thenRejectLineAndImportTheRest() throws Exception {
+
+        // given - precondition or setup
+        ReflectionTestUtils.setField(postService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(postService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(postService, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(postService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(postService, "importChunkSize", 500);
+
+        String ndjson = "{\"title\":\"Title\",\"description\":\"Description of the post\",\"content\":\"Content\"}\n"
+                + "null\n"
+                + "{\"title\":\n";
+
+        // stub method for postRepository.saveAll
+        given(postRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+
+        // when - action or behaviour that we are going to test
+        PostImportResponse response = postService.importPosts(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        // then - verify the output
+        assertThat(response.getImported()).isEqualTo(1);
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getErrors()).containsExactly("line 2: not a post object", "line 3: malformed JSON");
     }
 
 }
@@ -0,0 +1,102 @@
+package com.mihailstoica.blog.service;
+
+import com.mihailstoica.blog.exception.ResourceNotFoundException;
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.payload.PostDto;
+import com.mihailstoica.blog.repository.reactive.CommentRow;
+import com.mihailstoica.blog.repository.reactive.PostRow;
+import com.mihailstoica.blog.repository.reactive.ReactiveCommentRepository;
+import com.mihailstoica.blog.repository.reactive.ReactivePostRepository;
+import com.mihailstoica.blog.service.impl.ReactiveReadServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveReadServiceTests {
+
+    @Mock
+    private ReactivePostRepository postRepository;
+
+    @Mock
+    private ReactiveCommentRepository commentRepository;
+
+    @InjectMocks
+    private ReactiveReadServiceImpl reactiveReadService;
+
+    @DisplayName("JUnit test for reactive getAllPosts method")
+    @Test
+    public void givenPostRows_whenGetAllPosts_thenReturnPostDtos() {
+
+        // given - precondition or setup
+        PostRow post = new PostRow();
+        post.setId(1L);
+        post.setTitle("Title");
+        post.setCommentCount(3);
+        given(postRepository.findByDeletedAtIsNull(PageRequest.of(0, 10, Sort.by("title").descending())))
+                .willReturn(Flux.just(post));
+
+        // when - action or the behaviour that we are going to test
+        List<PostDto> posts = reactiveReadService.getAllPosts(0, 10, "title", "desc").collectList().block();
+
+        // then - verify the output
+        assertThat(posts).hasSize(1);
+        assertThat(posts.get(0).getTitle()).isEqualTo("Title");
+        assertThat(posts.get(0).getCommentCount()).isEqualTo(3);
+    }
+
+    @DisplayName("JUnit test for reactive getPostById method (post not found)")
+    @Test
+    public void givenMissingPost_whenGetPostById_thenThrowsResourceNotFoundException() {
+
+        // given - precondition or setup
+        given(postRepository.findByIdAndDeletedAtIsNull(1L)).willReturn(Mono.empty());
+
+        // when - action or the behaviour that we are going to test
+        Mono<PostDto> post = reactiveReadService.getPostById(1L);
+
+        // then - verify the output
+        assertThatThrownBy(post::block).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @DisplayName("JUnit test for reactive getAllCommentsByPostId method")
+    @Test
+    public void givenPostId_whenGetAllCommentsByPostId_thenReturnCommentsOnlyForExistingPost() {
+
+        // given - precondition or setup
+        CommentRow comment = new CommentRow();
+        comment.setId(2L);
+        comment.setBody("comment body");
+        given(postRepository.existsByIdAndDeletedAtIsNull(1L)).willReturn(Mono.just(true));
+        given(postRepository.existsByIdAndDeletedAtIsNull(9L)).willReturn(Mono.just(false));
+        given(commentRepository.findByPostIdAndDeletedAtIsNull(1L, PageRequest.of(0, 10, Sort.by("id").ascending())))
+                .willReturn(Flux.just(comment));
+
+        // when - action or the behaviour that we are going to test
+        List<CommentDto> comments = reactiveReadService.getAllCommentsByPostId(1L, 0, 10, "id", "asc")
+                .collectList().block();
+        Flux<CommentDto> missing = reactiveReadService.getAllCommentsByPostId(9L, 0, 10, "id", "asc");
+
+        // then - verify the output
+        assertThat(comments).extracting(CommentDto::getBody).containsExactly("comment body");
+        assertThatThrownBy(missing::blockLast).isInstanceOf(ResourceNotFoundException.class);
+        verify(commentRepository, never()).findByPostIdAndDeletedAtIsNull(eq(9L), any());
+    }
+}
@@ -0,0 +1,91 @@
+package com.mihailstoica.blog.service;
+
+import com.mihailstoica.blog.repository.CommentRepository;
+import com.mihailstoica.blog.repository.PostRepository;
+import com.mihailstoica.blog.service.impl.SoftDeletePurgeJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class SoftDeletePurgeJobTests {
+
+    private static final Duration RETENTION = Duration.ofHours(24);
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private SoftDeletePurgeJob purgeJob;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(purgeJob, "retention", RETENTION);
+        ReflectionTestUtils.setField(purgeJob, "batchSize", 2);
+        ReflectionTestUtils.setField(purgeJob, "maxBatches", 5);
+    }
+
+    @DisplayName("JUnit test for purge - batches repeat until one is not full, with the retention cutoff")
+    @Test
+    public void givenSoftDeletedRows_whenPurge_thenDeleteInBatchesOlderThanRetention() {
+
+        // given - precondition or setup
+        given(commentRepository.purgeDeleted(any(Instant.class), eq(2))).willReturn(2, 2, 1);
+        given(commentRepository.purgeOfDeletedPosts(any(Instant.class), eq(2))).willReturn(0);
+        given(postRepository.purgeDeleted(any(Instant.class), eq(2))).willReturn(1);
+        Instant start = Instant.now();
+
+        // when - action or behaviour that we are going to test
+        purgeJob.purge();
+
+        // then - verify the output
+        ArgumentCaptor<Instant> before = ArgumentCaptor.forClass(Instant.class);
+        verify(commentRepository, times(3)).purgeDeleted(before.capture(), eq(2));
+        verify(commentRepository, times(1)).purgeOfDeletedPosts(any(Instant.class), eq(2));
+        verify(postRepository, times(1)).purgeDeleted(any(Instant.class), eq(2));
+        assertThat(before.getValue()).isBetween(start.minus(RETENTION), Instant.now().minus(RETENTION));
+        // one transaction per batch
+        verify(transactionManager, times(5)).commit(any());
+    }
+
+    @DisplayName("JUnit test for purge - a run stops after the maximum number of batches")
+    @Test
+    public void givenMoreRowsThanBudget_whenPurge_thenStopAtMaxBatches() {
+
+        // given - precondition or setup
+        given(commentRepository.purgeDeleted(any(Instant.class), eq(2))).willReturn(2);
+
+        // when - action or behaviour that we are going to test
+        purgeJob.purge();
+
+        // then - verify the output
+        verify(commentRepository, times(5)).purgeDeleted(any(Instant.class), eq(2));
+        verify(commentRepository, never()).purgeOfDeletedPosts(any(Instant.class), anyInt());
+        verify(postRepository, never()).purgeDeleted(any(Instant.class), anyInt());
+    }
+}
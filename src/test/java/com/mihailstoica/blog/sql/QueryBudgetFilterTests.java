@@ -0,0 +1,79 @@
+package com.mihailstoica.blog.sql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QueryBudgetFilterTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final StatementCounter statementCounter = new StatementCounter();
+
+    // a request to /api/v1/posts/{id} running the given statements
+    private FilterChain handler(String... statements) {
+        return (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/posts/{id}");
+            for (String statement : statements) {
+                statementCounter.inspect(statement);
+            }
+        };
+    }
+
+    @DisplayName("JUnit test for QueryBudgetFilter - statements within the budget are only measured")
+    @Test
+    public void givenStatementsWithinBudget_whenFilter_thenStatementCountRecorded() throws Exception {
+
+        // given - precondition or setup
+        QueryBudgetFilter filter = new QueryBudgetFilter(meterRegistry, 2, 5, true);
+
+        // when - action or behaviour that we are going to test
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/posts/1"), new MockHttpServletResponse(),
+                handler("select * from posts where id = 1", "select * from comments where post_id = 1"));
+
+        // then - verify the output
+        assertThat(meterRegistry.get(QueryBudgetFilter.STATEMENTS_METRIC).tag("uri", "/api/v1/posts/{id}")
+                .summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.find(QueryBudgetFilter.BUDGET_EXCEEDED_METRIC).counter()).isNull();
+    }
+
+    @DisplayName("JUnit test for QueryBudgetFilter - repeated statements over the budget fail in strict mode")
+    @Test
+    public void givenRepeatedStatementsOverBudget_whenFilterStrict_thenThrowsAndCounts() {
+
+        // given - precondition or setup
+        QueryBudgetFilter filter = new QueryBudgetFilter(meterRegistry, 2, 3, true);
+        FilterChain chain = handler("select * from posts", "select * from users where id = 1",
+                "select * from users where id = 2", "select * from users where id = 3");
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/posts/1"),
+                new MockHttpServletResponse(), chain))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("GET /api/v1/posts/{id} ran 4 SQL statements, over its budget of 2")
+                .hasMessageContaining("3x select * from users where id = ?");
+        assertThat(meterRegistry.get(QueryBudgetFilter.BUDGET_EXCEEDED_METRIC).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(QueryBudgetFilter.REPEATED_METRIC).counter().count()).isEqualTo(1);
+    }
+
+    @DisplayName("JUnit test for StatementCounter - literals and IN lists collapse into one shape")
+    @Test
+    public void givenStatementsWithLiterals_whenShape_thenLiteralsReplaced() {
+
+        // when - action or behaviour that we are going to test
+        String shape = StatementCounter.shape("select * from posts  where title = 'it''s' and id in (?, ?, ?) limit 10");
+
+        // then - verify the output
+        assertThat(shape).isEqualTo("select * from posts where title = ? and id in (?) limit ?");
+    }
+}
@@ -0,0 +1,320 @@
+package com.mihailstoica.blog.stream;
+
+import com.mihailstoica.blog.event.CommentCreatedEvent;
+import com.mihailstoica.blog.event.PostDeletedEvent;
+import com.mihailstoica.blog.exception.BlogApiException;
+import com.mihailstoica.blog.payload.CommentDto;
+import com.mihailstoica.blog.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class CommentStreamHubTests {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private CommentStreamHub hub;
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static CommentCreatedEvent comment(long postId, long id) {
+        CommentDto commentDto = new CommentDto();
+        commentDto.setId(id);
+        commentDto.setBody("comment " + id);
+        return new CommentCreatedEvent(postId, commentDto);
+    }
+
+    @BeforeEach
+    public void setup() {
+        given(postRepository.existsById(anyLong())).willReturn(true);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        emitters.forEach(RecordingEmitter::release);
+        hub.shutdown();
+    }
+
+    private void createHub(int senderThreads, int bufferSize, int maxSubscribers) {
+        hub = new CommentStreamHub(postRepository, senderThreads) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter(timeoutMillis);
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(hub, "bufferSize", bufferSize);
+        ReflectionTestUtils.setField(hub, "maxSubscribers", maxSubscribers);
+        ReflectionTestUtils.setField(hub, "timeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(hub, "writeTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(hub, "maxStalledSenders", 4);
+    }
+
+    @DisplayName("JUnit test for CommentStreamHub - concurrent offers are all drained in order")
+    @Test
+    public void givenConcurrentComments_whenOffered_thenEverySubscriberReceivesAllInOrder() throws Exception {
+
+        // given - precondition or setup
+        createHub(1, 10_000, 10);
+        RecordingEmitter first = (RecordingEmitter) hub.subscribe(1L);
+        RecordingEmitter second = (RecordingEmitter) hub.subscribe(1L);
+        int producers = 4;
+        int perProducer = 1000;
+
+        // when - action or behaviour that we are going to test
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            long offset = p * 1_000_000L;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    hub.onCommentCreated(comment(1L, offset + i));
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        waitFor(() -> first.ids.size() == producers * perProducer && second.ids.size() == producers * perProducer);
+
+        // then - verify the output
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            assertThat(emitter.ids).hasSize(producers * perProducer);
+            assertThat(emitter.completed).isFalse();
+            for (int p = 0; p < producers; p++) {
+                long offset = p * 1_000_000L;
+                assertThat(emitter.ids.stream().filter(id -> id >= offset && id < offset + perProducer))
+                        .isSorted()
+                        .hasSize(perProducer);
+            }
+        }
+    }
+
+    @DisplayName("JUnit test for CommentStreamHub - a subscriber with a full queue is disconnected")
+    @Test
+    public void givenSlowSubscriber_whenQueueFull_thenDisconnectOnlyThatSubscriber() throws Exception {
+
+        // given - precondition or setup
+        createHub(2, 2, 10);
+        RecordingEmitter slow = (RecordingEmitter) hub.subscribe(1L);
+        RecordingEmitter fast = (RecordingEmitter) hub.subscribe(1L);
+        slow.block();
+
+        // when - action or behaviour that we are going to test
+        // one comment in flight and two queued at most, the rest overflows the slow subscriber
+        hub.onCommentCreated(comment(1L, 1L));
+        waitFor(() -> slow.attempts.get() == 1 && fast.ids.size() == 1);
+        for (long id = 2; id <= 5; id++) {
+            int delivered = (int) id;
+            hub.onCommentCreated(comment(1L, id));
+            waitFor(() -> fast.ids.size() == delivered);
+        }
+
+        // then - verify the output
+        assertThat(slow.completed).isTrue();
+        assertThat(fast.completed).isFalse();
+        assertThat(fast.ids).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+    }
+
+    @DisplayName("JUnit test for CommentStreamHub - subscribers beyond the limit get a 503")
+    @Test
+    public void givenMaxSubscribers_whenSubscribe_thenServiceUnavailable() {
+
+        // given - precondition or setup
+        createHub(1, 8, 1);
+        hub.subscribe(1L);
+
+        // when - action or behaviour that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> hub.subscribe(2L))
+                .isInstanceOf(BlogApiException.class)
+                .extracting("status").isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+
+        // a completed stream frees its slot
+        hub.onPostDeleted(new PostDeletedEvent(1L));
+        assertThat(hub.subscribe(2L)).isNotNull();
+    }
+
+    @DisplayName("JUnit test for CommentStreamHub - deleting the post completes its streams")
+    @Test
+    public void givenSubscribers_whenPostDeleted_thenCompleteOnlyThatPostsStreams() throws Exception {
+
+        // given - precondition or setup
+        createHub(1, 8, 10);
+        RecordingEmitter deletedPost = (RecordingEmitter) hub.subscribe(1L);
+        RecordingEmitter otherPost = (RecordingEmitter) hub.subscribe(2L);
+
+        // when - action or behaviour that we are going to test
+        hub.onPostDeleted(new PostDeletedEvent(1L));
+        hub.onCommentCreated(comment(1L, 1L));
+        hub.onCommentCreated(comment(2L, 2L));
+        waitFor(() -> otherPost.ids.size() == 1);
+
+        // then - verify the output
+        assertThat(deletedPost.completed).isTrue();
+        assertThat(deletedPost.ids).isEmpty();
+        assertThat(otherPost.completed).isFalse();
+        assertThat(otherPost.ids).containsExactly(2L);
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+    }
+
+    @DisplayName("JUnit test for CommentStreamHub - a send past the write timeout does not hold up others")
+    @Test
+    public void givenStalledSend_whenWriteTimeoutExpires_thenDropSubscriberAndKeepSending() throws Exception {
+
+        // given - precondition or setup
+        createHub(1, 8, 10);
+        ReflectionTestUtils.setField(hub, "writeTimeout", Duration.ZERO);
+        ThreadPoolExecutor senders = (ThreadPoolExecutor) ReflectionTestUtils.getField(hub, "senders");
+        RecordingEmitter stalled = (RecordingEmitter) hub.subscribe(1L);
+        RecordingEmitter healthy = (RecordingEmitter) hub.subscribe(2L);
+        stalled.block();
+        hub.onCommentCreated(comment(1L, 1L));
+        waitFor(() -> stalled.attempts.get() == 1);
+        // queued behind the stalled send on the only sender thread
+        hub.onCommentCreated(comment(2L, 2L));
+
+        // when - action or behaviour that we are going to test
+        hub.checkWriteTimeouts();
+        waitFor(() -> healthy.ids.size() == 1);
+
+        // then - verify the output
+        assertThat(healthy.ids).containsExactly(2L);
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+        assertThat(senders.getCorePoolSize()).isEqualTo(2);
+
+        // the stuck send returns: its emitter is completed and the spare sender goes away
+        stalled.release();
+        waitFor(() -> stalled.completed);
+        assertThat(stalled.completed).isTrue();
+        assertThat(senders.getCorePoolSize()).isEqualTo(1);
+    }
+
+    // records the comment ids it was sent; block() makes sends wait until release()
+    @DisplayName("JUnit test for CommentStreamHub - a subscribe racing the last close still gets comments")
+    @Test
+    public void givenLastSubscriberClosing_whenSubscribeConcurrently_thenNewSubscriberIsNotLost() throws Exception {
+
+        // given - precondition or setup
+        int posts = 2000;
+        createHub(2, 10, posts * 2);
+        for (long postId = 1; postId <= posts; postId++) {
+            hub.subscribe(postId);
+        }
+        RecordingEmitter[] late = new RecordingEmitter[posts + 1];
+
+        // when - action or behaviour that we are going to test
+        // deleting the post closes its only subscriber, which drops the post's subscriber set
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (long postId = 1; postId <= posts; postId++) {
+            long id = postId;
+            CountDownLatch start = new CountDownLatch(1);
+            executor.execute(() -> {
+                awaitQuietly(start);
+                hub.onPostDeleted(new PostDeletedEvent(id));
+            });
+            executor.execute(() -> {
+                awaitQuietly(start);
+                late[(int) id] = (RecordingEmitter) hub.subscribe(id);
+            });
+            start.countDown();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        for (long postId = 1; postId <= posts; postId++) {
+            hub.onCommentCreated(comment(postId, postId));
+        }
+
+        // then - verify the output
+        // a late subscriber was either completed by the delete or is still registered for comments
+        for (int postId = 1; postId <= posts; postId++) {
+            RecordingEmitter emitter = late[postId];
+            waitFor(() -> emitter.completed || !emitter.ids.isEmpty());
+            assertThat(emitter.completed || !emitter.ids.isEmpty())
+                    .as("subscriber of post %d", postId)
+                    .isTrue();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<Long> ids = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        private volatile boolean completed;
+
+        private RecordingEmitter(long timeoutMillis) {
+            super(timeoutMillis);
+        }
+
+        private void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        private void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            attempts.incrementAndGet();
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+            builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(CommentDto.class::isInstance)
+                    .forEach(data -> ids.add(((CommentDto) data).getId()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}